@@ -0,0 +1,135 @@
+#!/bin/bash
+# Benchmarks the C++ generated by the translator, see the Benchmarks section
+# of README.md.
+#
+# usage: bench/bench.sh [-n runs] [-O "levels"] [-t "translator flags"] [-b baseline] [-u] [inputs...]
+#
+# Every input, by default test000 to test050 and the bench inputs, is
+# translated, compiled at every optimization level with the runtime's
+# counters (RT_STATS) and run n times.  A row of the results holds the
+# median wall time, the peak RSS and the allocations of one input at one
+# level and is compared against the same row of the baseline.  With -u the
+# results become the new baseline.
+#
+# The translator runs from $CLASSPATH, which the sbt task bench sets.
+
+cd "$(dirname "$0")/.." || exit 2
+
+runs=5
+levels="-O2 -O3"
+flags=""
+baseline=bench/baseline.csv
+update=0
+while getopts "n:O:t:b:u" opt; do
+    case $opt in
+        n) runs=$OPTARG ;;
+        O) levels=$OPTARG ;;
+        t) flags=$OPTARG ;;
+        b) baseline=$OPTARG ;;
+        u) update=1 ;;
+        *) sed -n 5p "$0"; exit 2 ;;
+    esac
+done
+shift $((OPTIND - 1))
+
+inputs="$*"
+if [ -z "$inputs" ]; then
+    inputs="$(seq -f "test%03g" 0 50) $(cd src/test/java/inputs && ls -d bench*)"
+fi
+
+# More time or peak RSS than the baseline by this many percent is a
+# regression, more time only once it is also beyond the timer's noise.
+TOLERANCE=15
+NOISE_US=2000
+
+# One of the counters the runtime reports, see __rt::stats.
+count() {
+    echo "$stats" | sed -n "s/.* $1=\([0-9]*\).*/\1/p"
+}
+
+work=$(mktemp -d)
+trap 'rm -rf "$work"' EXIT
+
+results=bench/results.csv
+{
+    echo "# $(g++ --version | head -n 1), $runs runs, translator flags: ${flags:-none}"
+    echo "input,level,time_us,peak_rss_kb,objects,allocations,bytes"
+} > $results
+
+for input in $inputs; do
+    source=src/test/java/inputs/$input/${input^}.java
+    rm -f output/output.h output/output.cpp output/main.cpp
+    java -cp "$CLASSPATH" edu.nyu.oop.Boot -translate $flags $source > $work/translate.log 2>&1
+    if [ ! -f output/main.cpp ]; then
+        echo "$input: not translated, see the log below" >&2
+        tail -n 5 $work/translate.log >&2
+        continue
+    fi
+
+    for level in $levels; do
+        if ! g++ -std=c++11 $level -DRT_STATS=1 output/main.cpp output/java_lang.cpp output/output.cpp \
+                -o $work/a.out 2> $work/compile.log; then
+            echo "$input $level: not compiled, see the log below" >&2
+            head -n 5 $work/compile.log >&2
+            continue
+        fi
+
+        times=""
+        for run in $(seq $runs); do
+            start=$(date +%s%N)
+            # inputs ending in an uncaught exception abort, quietly
+            { $work/a.out > /dev/null 2> $work/stats; } 2> /dev/null
+            end=$(date +%s%N)
+            times="$times $(( (end - start) / 1000 ))"
+        done
+        time=$(echo $times | tr ' ' '\n' | sort -n | sed -n "$(( (runs + 1) / 2 ))p")
+
+        # written by the runtime at exit or when terminating
+        stats=$(grep -m 1 '^rt_stats ' $work/stats)
+        echo "$input,$level,$time,$(count peak_rss_kb),$(count objects),$(count allocations),$(count bytes)" >> $results
+    done
+done
+
+if [ $update = 1 ]; then
+    cp $results $baseline
+    echo "Wrote $baseline"
+    exit 0
+fi
+
+if [ ! -f $baseline ]; then
+    cat $results
+    exit 0
+fi
+
+# Allocations are exact, any increase is a regression.  Time and peak RSS
+# vary from run to run, only changes beyond the tolerance count.
+awk -F, -v tolerance=$TOLERANCE -v noise=$NOISE_US '
+    function percent(now, before,    change) {
+        if (now == "" || before <= 0) return "-"
+        change = sprintf("%+.0f", 100 * (now - before) / before)
+        return (change == "-0" ? "+0" : change) "%"
+    }
+    # a count the baseline lacks, of a program which terminated, is not compared
+    function more(now, before, slack) {
+        return now != "" && before != "" && now > before * (1 + slack / 100)
+    }
+    /^#/ || $1 == "input" { next }
+    FNR == NR { base[$1 "," $2] = $0; next }
+    {
+        key = $1 "," $2
+        if (!(key in base)) { printf "%-10s %-4s %10s us  new\n", $1, $2, $3; next }
+        split(base[key], b, ",")
+        verdict = ""
+        if (more($3, b[3], tolerance) && $3 - b[3] > noise) verdict = verdict " slower"
+        if (more($4, b[4], tolerance)) verdict = verdict " larger"
+        if (more($5, b[5], 0) || more($6, b[6], 0)) verdict = verdict " allocates more"
+        if (verdict != "") regressions++
+        printf "%-10s %-4s %10s us %6s  %8s KB %6s  %9s objects %6s  %9s allocations %6s %s\n",
+               $1, $2, $3, percent($3, b[3]), $4, percent($4, b[4]),
+               $5, percent($5, b[5]), $6, percent($6, b[6]), verdict
+    }
+    END {
+        printf "%d regression(s) against the baseline\n", regressions
+        exit regressions > 0
+    }
+' $baseline $results
@@ -1,7 +1,18 @@
 #include "java_lang.h"
 
+#include <cmath>
+#include <cstddef>
+#include <cstdlib>
+#include <cstring>
+#include <exception>
+#include <limits>
 #include <stdexcept>
 #include <sstream>
+#include <vector>
+
+#if RT_STATS
+#include <sys/resource.h>
+#endif
 
 namespace java
 {
@@ -42,9 +53,10 @@ String __Object::toString(Object __this)
 }
 
 // Internal accessor for java.lang.Object's class.
-Class __Object::__class()
+__Class* __Object::__class()
 {
-    static Class k = new __Class(__rt::literal("java.lang.Object"), __rt::null());
+    static __Class* k;
+    if (0 == k) k = __rt::registerClass(new __Class(__rt::literal("java.lang.Object"), __rt::null()));
     return k;
 }
 
@@ -57,36 +69,47 @@ __Object_VT __Object::__vtable;
 // java.lang.String(<literal>)
 __String::__String(std::string data)
     : __vptr(&__vtable),
-      data(data)
+      data(std::move(data)),
+      hash(0)
 {
 }
 
 // java.lang.String.hashCode()
 int32_t __String::hashCode(String __this)
 {
-    int32_t hash = 0;
+    // Strings never change, so the hash is computed on first use only.
+    // A string hashing to 0 is rescanned each time, as in Java.
+    if (0 != __this->hash) return __this->hash;
+
+    // Unsigned arithmetic wraps around like Java's int does.
+    uint32_t hash = 0;
 
     // Use a C++ iterator to access string's characters.
     for (std::string::iterator itr = __this->data.begin();
             itr < __this->data.end();
             itr++)
     {
-        hash = 31 * hash + *itr;
+        hash = 31 * hash + (uint32_t) *itr;
     }
 
-    return hash;
+    __this->hash = (int32_t) hash;
+    return __this->hash;
 }
 
 // java.lang.String.equals()
 bool __String::equals(String __this, Object o)
 {
+    if (__this == o) return true;
+
     // Make sure object is a string:
     // if (! o instanceof String) return false;
-    Class k = __String::__class();
-    if (! k->__vptr->isInstance(k, o)) return false;
+    // String is final, so comparing the vtable is enough.
+    if (__rt::null() == o || (void*) o->__vptr != (void*) &__String::__vtable) return false;
 
-    // Do the actual comparison.
+    // Do the actual comparison, cheapest differences first.
     String other = o; // Implicit downcast.
+    if (__this->data.length() != other->data.length()) return false;
+    if (0 != __this->hash && 0 != other->hash && __this->hash != other->hash) return false;
     return __this->data.compare(other->data) == 0;
 }
 
@@ -116,9 +139,10 @@ char __String::charAt(String __this, int32_t idx)
 }
 
 // Internal accessor for java.lang.String's class.
-Class __String::__class()
+__Class* __String::__class()
 {
-    static Class k = new __Class(__rt::literal("java.lang.String"), __Object::__class());
+    static __Class* k;
+    if (0 == k) k = __rt::registerClass(new __Class(__rt::literal("java.lang.String"), __Object::__class()));
     return k;
 }
 
@@ -133,27 +157,25 @@ std::ostream& operator<<(std::ostream& out, String s)
     return out;
 }
 
-String operator+(String s, char t)
-{
-    return new __String(safeToString(s)->data + t);
-}
-
-String operator+(char s, String t)
-{
-    return new __String(s + safeToString(t)->data);
-}
-
 
 // =======================================================================
 
 // java.lang.Class(String, Class)
-__Class::__Class(String name, Class parent, Class component, bool primitive)
+__Class::__Class(String name, Class parent, Class component, bool primitive, __rt::Trace trace)
     : __vptr(&__vtable),
       name(name),
       parent(parent),
       component(component),
-      primitive(primitive)
+      primitive(primitive),
+      depth((Class)__rt::null() == parent ? 0 : parent->depth + 1),
+      trace(trace)
 {
+    // Classes are built after their superclass, so the parent's display is complete.
+    for (int32_t i = 0; i < DISPLAY; i++)
+    {
+        display[i] = i < depth ? parent->display[i] : 0;
+    }
+    if (depth < DISPLAY) display[depth] = this;
 }
 
 // java.lang.Class.toString()
@@ -200,6 +222,12 @@ bool __Class::isInstance(Class __this, Object o)
     // is an instance of a given class
     Class k = o->__vptr->getClass(o);
 
+    // A class is an instance of __this exactly when __this is its ancestor at __this's depth.
+    if ((Class)__rt::null() == __this->component && __this->depth < DISPLAY)
+    {
+        return k->depth >= __this->depth && k->display[__this->depth] == __this.raw();
+    }
+
     do
     {
         if (__this->__vptr->equals(__this, (Object)k)) return true;
@@ -220,9 +248,10 @@ bool __Class::isInstance(Class __this, Object o)
 }
 
 // Internal accessor for java.lang.Class' class.
-Class __Class::__class()
+__Class* __Class::__class()
 {
-    static Class k = new __Class(__rt::literal("java.lang.Class"), __Object::__class());
+    static __Class* k;
+    if (0 == k) k = __rt::registerClass(new __Class(__rt::literal("java.lang.Class"), __Object::__class()));
     return k;
 }
 
@@ -245,22 +274,479 @@ java::lang::Object null()
     return value;
 }
 
+static double readBack(const char* text, double)
+{
+    return std::strtod(text, 0);
+}
+
+static float readBack(const char* text, float)
+{
+    return std::strtof(text, 0);
+}
+
+// The shortest of %.1e to %.<digits>e that reads back as value, split into
+// its digits, without the point or trailing zeros, and its decimal exponent.
+// Like Java two digits are the least, so 4.9E-324 rather than 5.0E-324.
+template <typename T>
+static int shortestDigits(T value, int digits, char* mantissa, int* exponent)
+{
+    char text[32];
+    for (int precision = 2; ; precision++)
+    {
+        std::snprintf(text, sizeof text, "%.*e", precision - 1, (double) value);
+        if (precision == digits || readBack(text, value) == value) break;
+    }
+
+    int length = 0;
+    const char* c = text;
+    for (; 'e' != *c; c++)
+    {
+        if ('.' != *c) mantissa[length++] = *c;
+    }
+    *exponent = std::atoi(c + 1);
+    while (length > 1 && '0' == mantissa[length - 1]) length--;
+    return length;
+}
+
+// Java's layout of the shortest digits, plain from 10^-3 up to 10^7 and in
+// computerized scientific notation outside, always with a digit after the point.
+template <typename T>
+static size_t formatJava(char* buffer, T value, int digits)
+{
+    if (value != value) return std::snprintf(buffer, 32, "NaN");
+    if (value == std::numeric_limits<T>::infinity()) return std::snprintf(buffer, 32, "Infinity");
+    if (value == -std::numeric_limits<T>::infinity()) return std::snprintf(buffer, 32, "-Infinity");
+
+    char* out = buffer;
+    if (std::signbit(value))
+    {
+        *out++ = '-';
+        value = -value;
+    }
+    if (0 == value)
+    {
+        std::memcpy(out, "0.0", 3);
+        return out + 3 - buffer;
+    }
+
+    char mantissa[32];
+    int exponent;
+    int length = shortestDigits(value, digits, mantissa, &exponent);
+
+    if (value >= (T) 1e-3 && value < (T) 1e7)
+    {
+        if (exponent < 0)
+        {
+            *out++ = '0';
+            *out++ = '.';
+            for (int i = -1; i > exponent; i--) *out++ = '0';
+            std::memcpy(out, mantissa, length);
+            out += length;
+        }
+        else
+        {
+            for (int i = 0; i <= exponent; i++) *out++ = i < length ? mantissa[i] : '0';
+            *out++ = '.';
+            if (exponent + 1 >= length) *out++ = '0';
+            for (int i = exponent + 1; i < length; i++) *out++ = mantissa[i];
+        }
+        return out - buffer;
+    }
+
+    *out++ = mantissa[0];
+    *out++ = '.';
+    if (1 == length) *out++ = '0';
+    std::memcpy(out, mantissa + 1, length - 1);
+    out += length - 1;
+    return out + std::snprintf(out, 8, "E%d", exponent) - buffer;
+}
+
+size_t formatDouble(char* buffer, double d)
+{
+    return formatJava(buffer, d, 17);
+}
+
+size_t formatFloat(char* buffer, float f)
+{
+    return formatJava(buffer, f, 9);
+}
+
+// The stream buffer behind out(), handing full buffers to stdout.
+class OutBuffer : public std::streambuf
+{
+    static const size_t SIZE = 1 << 16;
+
+    char buffer[SIZE];
+    const bool lines;
+    // the characters of the current line, when line buffered
+    size_t pending;
+
+public:
+    // A line buffered stream keeps no put area, so every character reaches overflow.
+    OutBuffer(bool lines) : lines(lines), pending(0)
+    {
+        if (lines) setp(0, 0);
+        else setp(buffer, buffer + SIZE);
+    }
+
+    ~OutBuffer()
+    {
+        sync();
+    }
+
+protected:
+    int overflow(int c)
+    {
+        if (EOF == c) return 0 == sync() ? 0 : EOF;
+
+        // line buffered, a line is written with one call once complete, so the
+        // lines printed by different threads never mix
+        if (lines)
+        {
+            buffer[pending++] = (char) c;
+            return ('\n' == c || SIZE == pending) && 0 != sync() ? EOF : c;
+        }
+
+        if (0 != sync()) return EOF;
+        *pptr() = (char) c;
+        pbump(1);
+        return c;
+    }
+
+    int sync()
+    {
+        size_t size = lines ? pending : pptr() - pbase();
+        if (0 != size && size != std::fwrite(buffer, 1, size, stdout)) return -1;
+        pending = 0;
+        if (!lines) setp(buffer, buffer + SIZE);
+        return std::fflush(stdout);
+    }
+};
+
+#if RT_STATS
+// The counters of the benchmarks, written to stderr at exit as one line:
+//   rt_stats objects=... allocations=... bytes=... peak_rss_kb=...
+// objects counts what the program allocates through the runtime, whether
+// from the heap, an arena or a pool.  allocations and bytes count every
+// call of the global operator new, the runtime's and the standard
+// library's alike.  The counts are only exact for single threaded programs.
+namespace stats
+{
+
+size_t objects = 0;
+size_t allocations = 0;
+size_t bytes = 0;
+
+static void report()
+{
+    struct rusage usage;
+    getrusage(RUSAGE_SELF, &usage);
+    std::fprintf(stderr, "rt_stats objects=%zu allocations=%zu bytes=%zu peak_rss_kb=%ld\n",
+                 objects, allocations, bytes, (long) usage.ru_maxrss);
+}
+
+// Reports as the statics are destroyed at exit, nothing freed afterwards
+// changes the counts, or when terminating on an uncaught exception.
+static struct Reporter
+{
+    // also reports when terminating, see out()
+    Reporter()
+    {
+        out();
+    }
+
+    ~Reporter()
+    {
+        report();
+    }
+} reporter;
+
+}
+#endif
+
+static std::terminate_handler uncaught;
+
+// An uncaught exception still prints everything printed before it.
+static void flushThenTerminate()
+{
+    out().flush();
+#if RT_STATS
+    stats::report();
+#endif
+    uncaught();
+}
+
+std::ostream& out()
+{
+#if RT_THREADS
+    // every thread prints through a stream of its own, a line at a time
+    static thread_local OutBuffer buffer(true);
+    static thread_local std::ostream stream(&buffer);
+#else
+    static OutBuffer buffer(RT_UNBUFFERED_STDOUT);
+    static std::ostream stream(&buffer);
+#endif
+    static bool ready = (uncaught = std::set_terminate(flushThenTerminate), true);
+    (void) ready;
+    return stream;
+}
+
+#if RT_CYCLES
+// The cycle collector of -cycleCollector, synchronous trial deletion after
+// Bacon and Rajan's "Concurrent Cycle Collection in Reference Counted
+// Systems".  Counting alone never frees a cycle, the references among its
+// objects keep every count above zero.  Starting from the roots, the
+// objects whose count dropped without reaching zero, the collector takes
+// away the references between all objects it can reach.  An object left
+// with a count of zero is only referenced from garbage and is garbage
+// itself.  References the layouts don't trace are never taken away, so an
+// object the collector can't see through is always kept.
+//
+// The object graph is walked with explicit stacks, a long linked list would
+// overflow the native one.
+namespace cycles
+{
+
+bool due = false;
+
+// The roots remembered before collecting.
+static const size_t THRESHOLD = 10000;
+
+// The containers are never destroyed, objects are still released while
+// the statics are destroyed at exit.
+static std::vector<RefCount*>& roots()
+{
+    static std::vector<RefCount*>* roots = new std::vector<RefCount*>();
+    return *roots;
+}
+
+// The objects still to visit while marking gray, scanning or collecting.
+static std::vector<java::lang::__Object*>& work()
+{
+    static std::vector<java::lang::__Object*>* work = new std::vector<java::lang::__Object*>();
+    return *work;
+}
+
+// The objects still to visit while restoring counts, see scanBlack.
+static std::vector<java::lang::__Object*>& restore()
+{
+    static std::vector<java::lang::__Object*>* restore = new std::vector<java::lang::__Object*>();
+    return *restore;
+}
+
+// Every count is the header of an object, right after its vptr.
+static java::lang::__Object* objectOf(RefCount* rc)
+{
+    return (java::lang::__Object*) ((char*) rc - offsetof(java::lang::__Object, __rc));
+}
+
+// Hands every reference of an object to a visitor.  An object built before
+// its vtable, from a static initializer, has no class yet and is not traced.
+static void children(java::lang::__Object* object, Visit visit)
+{
+    java::lang::__Class* k = object->__vptr->__is_a.raw();
+    if (0 != k && 0 != k->trace) k->trace(object, visit);
+}
+
+void suspect(RefCount* rc)
+{
+    rc->color = PURPLE;
+    roots().push_back(rc);
+    rc->root = roots().size();
+    if (THRESHOLD <= roots().size()) due = true;
+}
+
+void forget(RefCount* rc)
+{
+    roots()[rc->root - 1] = 0;
+    rc->root = 0;
+}
+
+// Takes away the references from an object reachable from the roots.
+static void markGrayChild(java::lang::__Object*& child)
+{
+    if (0 == child) return;
+    --child->__rc.count;
+    if (GRAY != child->__rc.color)
+    {
+        child->__rc.color = GRAY;
+        work().push_back(child);
+    }
+}
+
+static void markGray(java::lang::__Object* object)
+{
+    object->__rc.color = GRAY;
+    work().push_back(object);
+    while (!work().empty())
+    {
+        java::lang::__Object* next = work().back();
+        work().pop_back();
+        children(next, markGrayChild);
+    }
+}
+
+// Gives the references back to everything reachable from a live object.
+static void scanBlackChild(java::lang::__Object*& child)
+{
+    if (0 == child) return;
+    ++child->__rc.count;
+    if (BLACK != child->__rc.color)
+    {
+        child->__rc.color = BLACK;
+        restore().push_back(child);
+    }
+}
+
+static void scanBlack(java::lang::__Object* object)
+{
+    object->__rc.color = BLACK;
+    restore().push_back(object);
+    while (!restore().empty())
+    {
+        java::lang::__Object* next = restore().back();
+        restore().pop_back();
+        children(next, scanBlackChild);
+    }
+}
+
+// Sorts the gray objects into live ones, still referenced from outside, and
+// white ones, which are garbage unless a live object reaches them later.
+static void scanChild(java::lang::__Object*& child)
+{
+    if (0 != child && GRAY == child->__rc.color) work().push_back(child);
+}
+
+static void scan(java::lang::__Object* object)
+{
+    work().push_back(object);
+    while (!work().empty())
+    {
+        java::lang::__Object* next = work().back();
+        work().pop_back();
+        if (GRAY != next->__rc.color) continue;
+        if (0 < next->__rc.count)
+        {
+            scanBlack(next);
+        }
+        else
+        {
+            next->__rc.color = WHITE;
+            children(next, scanChild);
+        }
+    }
+}
+
+static void collectWhiteChild(java::lang::__Object*& child)
+{
+    if (0 != child && WHITE == child->__rc.color)
+    {
+        child->__rc.color = GARBAGE;
+        work().push_back(child);
+    }
+}
+
+static void collectWhite(java::lang::__Object* object, std::vector<java::lang::__Object*>& garbage)
+{
+    if (WHITE != object->__rc.color) return;
+    object->__rc.color = GARBAGE;
+    work().push_back(object);
+    while (!work().empty())
+    {
+        java::lang::__Object* next = work().back();
+        work().pop_back();
+        garbage.push_back(next);
+        children(next, collectWhiteChild);
+    }
+}
+
+// Cuts a garbage object loose before it is deleted.  A reference to other
+// garbage is dropped without a release, that object is deleted on its own.
+// A reference to a live object was already taken away by markGray, it is
+// given back for the destructor to release.
+static void detachChild(java::lang::__Object*& child)
+{
+    if (0 == child) return;
+    if (GARBAGE == child->__rc.color) child = 0;
+    else child->__rc.acquire();
+}
+
+void collect()
+{
+    // deleting garbage never allocates, but stay safe should it ever
+    static bool collecting = false;
+    if (collecting) return;
+    collecting = true;
+    due = false;
+
+    // the roots are taken out of the buffer, releases while collecting
+    // remember new ones
+    std::vector<RefCount*> candidates;
+    candidates.swap(roots());
+    size_t size = 0;
+    for (size_t i = 0; i < candidates.size(); i++)
+    {
+        if (0 == candidates[i]) continue;
+        candidates[i]->root = 0;
+        candidates[size++] = candidates[i];
+    }
+    candidates.resize(size);
+
+    for (size_t i = 0; i < size; i++)
+    {
+        if (PURPLE == candidates[i]->color) markGray(objectOf(candidates[i]));
+    }
+    for (size_t i = 0; i < size; i++) scan(objectOf(candidates[i]));
+
+    std::vector<java::lang::__Object*> garbage;
+    for (size_t i = 0; i < size; i++) collectWhite(objectOf(candidates[i]), garbage);
+
+    for (size_t i = 0; i < garbage.size(); i++) children(garbage[i], detachChild);
+    for (size_t i = 0; i < garbage.size(); i++) garbage[i]->__vptr->__delete(garbage[i]);
+
+    collecting = false;
+}
+
+}
+#endif
+
 // Template specialization for arrays of ints.
 template<>
-java::lang::Class __Array<int32_t>::__class()
-{
-    // The Class object representing int.class
-    static java::lang::Class ik =
-        new java::lang::__Class(__rt::literal("int"),
-                                __rt::null(),
-                                __rt::null(),
-                                true);
-    // The Class object representing int[].class
-    static java::lang::Class k =
-        new java::lang::__Class(literal("[I"),
-                                java::lang::__Object::__class(),
-                                ik);
+java::lang::__Class* __Array<int32_t>::__class()
+{
+    static java::lang::__Class* k;
+    if (0 == k)
+    {
+        // The Class object representing int.class
+        java::lang::Class ik =
+            new java::lang::__Class(__rt::literal("int"),
+                                    __rt::null(),
+                                    __rt::null(),
+                                    true);
+        // The Class object representing int[].class
+        k = registerClass(new java::lang::__Class(literal("[I"),
+                                                  java::lang::__Object::__class(),
+                                                  ik));
+    }
     return k;
 }
 
-}
\ No newline at end of file
+}
+
+#if RT_STATS
+// The malloc counting shim of the benchmarks, see __rt::stats.  The array
+// forms and the sized delete forward to these.
+void* operator new(size_t size)
+{
+    ++__rt::stats::allocations;
+    __rt::stats::bytes += size;
+    void* addr = std::malloc(0 == size ? 1 : size);
+    if (0 == addr) throw std::bad_alloc();
+    return addr;
+}
+
+void operator delete(void* addr) noexcept
+{
+    std::free(addr);
+}
+#endif
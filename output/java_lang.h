@@ -1,7 +1,11 @@
 #pragma once
 
 #include <stdint.h>
+#include <cstdio>
+#include <initializer_list>
+#include <ostream>
 #include <string>
+#include <utility>
 
 #include "ptr.h"
 
@@ -47,8 +51,27 @@ namespace __rt
 // The function returning the canonical null value.
 java::lang::Object null();
 
+// System.out.  What is printed collects in a large buffer, which is written
+// when full, on System.out.flush(), and when the program exits or
+// terminates, rather than on every println.  With RT_UNBUFFERED_STDOUT every
+// line is written as soon as it is complete instead.
+std::ostream& out();
+
 java::lang::String literal(const char*);
 
+// How the cycle collector sees an object's references, see java_lang.cpp.
+// Every class object knows how to trace its layout, handing each reference
+// field to the visitor, which may also overwrite the field without
+// releasing it.
+typedef void (*Visit)(java::lang::__Object*&);
+typedef void (*Trace)(java::lang::__Object*, Visit);
+
+template <typename T>
+void trace(Ptr<T>& field, Visit visit)
+{
+    visit(*reinterpret_cast<java::lang::__Object**>(&field));
+}
+
 // The template function for the virtual destructor.
 template <typename T>
 void __delete(T* addr)
@@ -72,6 +95,9 @@ struct __Object
     // reference we have to the Object vtable below. main.cc will demonstrate this.
     __Object_VT* __vptr;
 
+    // The reference count, every layout has it right after the vptr.
+    __rt::RefCount __rc;
+
     // The constructor.
     __Object();
 
@@ -88,11 +114,22 @@ struct __Object
     static String toString(Object);
 
     // The function returning the class object representing java.lang.Object.
-    static Class __class();
+    static __Class* __class();
 
     // The vtable for java.lang.Object itself.
     // Moreover, always a reference to the behaviours of java.lang.Object.
     static __Object_VT __vtable;
+
+    // Every object is allocated through the runtime, see __rt::allocate.
+    static void* operator new(size_t size)
+    {
+        return __rt::allocate<__Object>(size);
+    }
+
+    static void operator delete(void* addr)
+    {
+        __rt::deallocate<__Object>(addr);
+    }
 };
 
 // The vtable layout for java.lang.Object.
@@ -135,10 +172,14 @@ std::ostream& operator<<(std::ostream& os, String s);
 struct __String
 {
     __String_VT* __vptr;
+    __rt::RefCount __rc;
 
     // The member that contains the actual string data.
     std::string data;
 
+    // The cached hash code, as in Java 0 until hashCode first computes it.
+    int32_t hash;
+
     // The constructor
     __String(std::string data);
 
@@ -152,6 +193,7 @@ struct __String
     static String __init(String __this, std::string data)
     {
         __this->data = data;
+        __this->hash = 0;
         return __this;
     }
 
@@ -163,10 +205,21 @@ struct __String
     static char charAt(String, int32_t);
 
     // The function returning the class object representing java.lang.String.
-    static Class __class();
+    static __Class* __class();
 
     // The vtable for java.lang.String.
     static __String_VT __vtable;
+
+    // Allocated through the runtime, see __rt::allocate.
+    static void* operator new(size_t size)
+    {
+        return __rt::allocate<__String>(size);
+    }
+
+    static void operator delete(void* addr)
+    {
+        __rt::deallocate<__String>(addr);
+    }
 };
 
 template<typename T>
@@ -181,9 +234,11 @@ String operator+(__rt::Ptr<S> s, __rt::Ptr<T> t)
     return new __String(safeToString(s)->data + safeToString(t)->data);
 }
 
-String operator+(String s, char t);
+// Deleted, so a concatenation the translator failed to lower to
+// __rt::concat is a compile error instead of a string built per +.
+String operator+(String s, char t) = delete;
 
-String operator+(char s, String t);
+String operator+(char s, String t) = delete;
 
 // The vtable layout for java.lang.String.
 struct __String_VT
@@ -222,16 +277,29 @@ struct __String_VT
 struct __Class
 {
     __Class_VT* __vptr;
+    __rt::RefCount __rc;
     String name;
     Class parent;
     Class component;
     bool primitive;
 
+    // The number of superclasses and the ancestors by depth, display[depth] is
+    // the class itself.  Subtype checks against a class no deeper than the
+    // display compare a single entry instead of walking the hierarchy.
+    static const int32_t DISPLAY = 8;
+    int32_t depth;
+    __Class* display[DISPLAY];
+
+    // Hands the references of an instance to a visitor, 0 for layouts
+    // without any, see __rt::Trace.
+    __rt::Trace trace;
+
     // The constructor.
     __Class(String name,
             Class parent,
             Class component = __rt::null(),
-            bool primitive = false);
+            bool primitive = false,
+            __rt::Trace trace = 0);
 
     // The init method for the constructor Class()
     static Class __init(Class __this)
@@ -249,10 +317,21 @@ struct __Class
     static bool isInstance(Class, Object);
 
     // The function returning the class object representing java.lang.Class.
-    static Class __class();
+    static __Class* __class();
 
     // The vtable for java.lang.Class.
     static __Class_VT __vtable;
+
+    // Allocated through the runtime, see __rt::allocate.
+    static void* operator new(size_t size)
+    {
+        return __rt::allocate<__Class>(size);
+    }
+
+    static void operator delete(void* addr)
+    {
+        __rt::deallocate<__Class>(addr);
+    }
 };
 
 // The vtable layout for java.lang.Class.
@@ -348,6 +427,125 @@ inline java::lang::String literal(const char * s)
     return new java::lang::__String(s);
 }
 
+// Function for registering a class object.  Class objects live as long as
+// the program, so the registration holds a reference that is never
+// released, __class() hands out the class as a borrowed raw pointer and no
+// Class wrapping it can ever delete it.
+//
+// Every __class() keeps its class in a zero-initialized pointer and
+// registers it on the first call, without the guard of a function-local
+// static with an initializer.  The first call of each class comes from the
+// static initializer of its vtable's __is_a, so all classes are registered
+// before main and never raced for.
+inline java::lang::__Class* registerClass(java::lang::__Class* k)
+{
+    k->__rc.acquire();
+    return k;
+}
+
+// Formats d into buffer the way Java's Double.toString does and returns
+// the length.  The buffer must hold 32 characters.
+size_t formatDouble(char* buffer, double d);
+
+// Float.toString, the shortest digits that read back as the same float.
+size_t formatFloat(char* buffer, float f);
+
+// One operand of a string concatenation, converted to text the way Java's
+// String.valueOf converts it.  A string operand is used in place, anything
+// else is formatted into the part itself.
+class ConcatPart
+{
+    java::lang::String string;
+    char buffer[32];
+    size_t length;
+
+public:
+    template <typename T>
+    ConcatPart(const Ptr<T>& object)
+        : string(java::lang::safeToString(object)), length(string->data.size()) {}
+
+    ConcatPart(bool b) : length(std::snprintf(buffer, sizeof buffer, "%s", b ? "true" : "false")) {}
+    ConcatPart(char c) : length(1)
+    {
+        buffer[0] = c;
+    }
+    ConcatPart(int8_t i) : length(std::snprintf(buffer, sizeof buffer, "%d", (int) i)) {}
+    ConcatPart(int16_t i) : length(std::snprintf(buffer, sizeof buffer, "%d", (int) i)) {}
+    ConcatPart(int32_t i) : length(std::snprintf(buffer, sizeof buffer, "%d", (int) i)) {}
+    ConcatPart(int64_t i) : length(std::snprintf(buffer, sizeof buffer, "%lld", (long long) i)) {}
+    ConcatPart(float f) : length(formatFloat(buffer, f)) {}
+    ConcatPart(double d) : length(formatDouble(buffer, d)) {}
+
+    const char* data() const
+    {
+        return 0 != string.raw() ? string->data.data() : buffer;
+    }
+
+    size_t size() const
+    {
+        return length;
+    }
+};
+
+// A whole chain of string concatenations, e.g. "a" + x + "b" + y.  The
+// result's text is reserved once and every part appended to it, rather
+// than allocating a string for each binary +.
+template <typename... T>
+java::lang::String concat(const T&... parts)
+{
+    const ConcatPart converted[] = { parts... };
+
+    size_t size = 0;
+    for (const ConcatPart& part : converted) size += part.size();
+
+    std::string data;
+    data.reserve(size);
+    for (const ConcatPart& part : converted) data.append(part.data(), part.size());
+    return new java::lang::__String(std::move(data));
+}
+
+// The string literals of a translated compilation unit, indexed by the
+// translator.  Each string is created the first time its literal runs and
+// is kept for the rest of the program, so a literal in a loop allocates
+// once, and equal literals are the same string, as in Java.  The pool is
+// constant initialized, so it is usable from any static initializer.
+template <size_t N>
+struct LiteralPool
+{
+    const char* text[N];
+#if RT_THREADS
+    std::atomic<java::lang::__String*> strings[N];
+#else
+    java::lang::__String* strings[N];
+#endif
+
+    java::lang::String operator[](size_t index)
+    {
+#if RT_THREADS
+        java::lang::__String* string = strings[index].load(std::memory_order_acquire);
+        if (0 == string)
+        {
+            // threads may race to create the string, all but the first drop theirs
+            java::lang::__String* created = new java::lang::__String(text[index]);
+            created->__rc.acquire();
+            if (strings[index].compare_exchange_strong(string, created, std::memory_order_acq_rel))
+                string = created;
+            else
+                delete created;
+        }
+        return string;
+#else
+        if (0 == strings[index])
+        {
+            strings[index] = new java::lang::__String(text[index]);
+            // the pool's own reference, never released
+            strings[index]->__rc.acquire();
+        }
+        return strings[index];
+#endif
+    }
+};
+
 inline int32_t checkNegativeIndex(int32_t index)
 {
     if (0 > index)
@@ -366,16 +564,30 @@ struct __Array;
 template <typename T>
 struct __Array_VT;
 
+template <typename T>
+struct Contiguous;
+
+// Rounds a size up to the alignment of any type, so that what follows it in
+// a block is aligned for vector loads.
+inline size_t aligned(size_t size)
+{
+    const size_t align = alignof(std::max_align_t);
+    return (size + align - 1) & ~(align - 1);
+}
+
 // generic C++ 'typedef' for representing Java array types,
 // i.e., Array<T> corresponds to Java's T[].
 template <typename T>
 using Array = __rt::Ptr<__Array<T> >;
 
-// The data layout for arrays.
+// The data layout for arrays of primitive types.  The elements follow the
+// header in the same allocation, at an offset aligned for vector loads, so
+// an array is one allocation and __data never changes.
 template <typename T>
 struct __Array
 {
     __Array_VT<T>* __vptr;
+    RefCount __rc;
     const int32_t length;
     T* __data;
 
@@ -385,19 +597,60 @@ struct __Array
         return __this;
     }
 
-    // The constructor (defined inline).
-    __Array(const int32_t length)
-        : __vptr(&__vtable), length(length), __data(new T[length]())
+    // Allocates an array of the given length with its elements zeroed.
+    static __Array* __new(const int32_t length)
+    {
+        return new (length) __Array(length);
+    }
+
+    // The offset of the elements from the start of the array.
+    static size_t __offset()
     {
+        return aligned(sizeof(__Array));
     }
 
     // The destructor.
     static void __delete(__Array<T>* addr)
     {
-        delete[] addr->__data;
         delete addr;
     }
 
+    // Allocated through the runtime together with the elements, see
+    // __rt::allocateBlock.
+    static void* operator new(size_t, const int32_t length)
+    {
+        return __rt::allocateBlock(__offset() + length * sizeof(T));
+    }
+
+    static void operator delete(void* addr, const int32_t)
+    {
+        __rt::deallocateBlock(addr);
+    }
+
+    static void operator delete(void* addr)
+    {
+        __rt::deallocateBlock(addr);
+    }
+
+private:
+    template <typename U>
+    friend struct Contiguous;
+
+    // The constructor (defined inline), only used by __new.
+    __Array(const int32_t length)
+        : __vptr(&__vtable), length(length), __data((T*) ((char*) this + __offset()))
+    {
+        std::memset(__data, 0, length * sizeof(T));
+    }
+
+    // The constructor for a row of a contiguous array, the elements are
+    // already zeroed, see Contiguous.
+    __Array(const int32_t length, T* data)
+        : __vptr(&__vtable), length(length), __data(data)
+    {
+    }
+
+public:
     // overload array subscript operators for convenient bounds-checked array access
     T& operator[](int32_t index)
     {
@@ -414,7 +667,7 @@ struct __Array
     }
 
     // The function returning the class object representing the array.
-    static java::lang::Class __class();
+    static java::lang::__Class* __class();
 
     // The vtable for the array.
     static __Array_VT<T> __vtable;
@@ -429,6 +682,7 @@ template <typename T>
 struct __Array<Ptr<T>>
 {
     __Array_VT<Ptr<T>>* __vptr;
+    RefCount __rc;
     const int32_t length;
     Ptr<T>* __data;
 
@@ -444,6 +698,20 @@ struct __Array<Ptr<T>>
     {
     }
 
+    // Allocates an array of the given length with its elements null.
+    static __Array* __new(const int32_t length)
+    {
+        return new __Array(length);
+    }
+
+    // The constructor for a level of a contiguous array, the references
+    // live in the array's block, see Contiguous.
+    __Array(const int32_t length, Ptr<T>* data)
+        : __vptr(&__vtable), length(length), __data(data)
+    {
+        for (int32_t i = 0; i < length; i++) ::new (&data[i]) Ptr<T>();
+    }
+
     // The destructor.
     static void __delete(__Array<Ptr<T>>* addr)
     {
@@ -451,6 +719,13 @@ struct __Array<Ptr<T>>
         delete addr;
     }
 
+    // The references of the array are its elements, see __rt::Trace.
+    static void __trace(java::lang::__Object* object, Visit visit)
+    {
+        __Array* array = (__Array*) object;
+        for (int32_t i = 0; i < array->length; i++) __rt::trace(array->__data[i], visit);
+    }
+
     // overload array subscript operators for convenient bounds-checked array access
     Ptr<T>& operator[](int32_t index)
     {
@@ -467,17 +742,31 @@ struct __Array<Ptr<T>>
     }
 
     // The function returning the class object representing the array.
-    static java::lang::Class __class()
+    static java::lang::__Class* __class()
     {
-        static java::lang::Class k =
-            new java::lang::__Class(new java::lang::__String("[L" + T::__class()->name->data + ";"),
-                                    java::lang::__Object::__class(),
-                                    T::__class());
+        static java::lang::__Class* k;
+        if (0 == k)
+            k = registerClass(new java::lang::__Class(new java::lang::__String("[L" + T::__class()->name->data + ";"),
+                                                      java::lang::__Object::__class(),
+                                                      T::__class(),
+                                                      false,
+                                                      &__Array::__trace));
         return k;
     }
 
     // The vtable for the array.
     static __Array_VT<Ptr<T>> __vtable;
+
+    // Allocated through the runtime, see __rt::allocate.
+    static void* operator new(size_t size)
+    {
+        return __rt::allocate<__Array>(size);
+    }
+
+    static void operator delete(void* addr)
+    {
+        __rt::deallocate<__Array>(addr);
+    }
 };
 
 // The vtable for arrays.
@@ -493,9 +782,9 @@ struct __Array_VT
     java::lang::Class (*getClass)(Reference);
     java::lang::String (*toString)(Reference);
 
-    __Array_VT()
+    __Array_VT(void (*__delete)(__Array<T>*) = &__Array<T>::__delete)
         : __is_a(__Array<T>::__class()),
-          __delete(&__Array<T>::__delete),
+          __delete(__delete),
           hashCode((int32_t(*)(Reference))
                    &java::lang::__Object::hashCode),
           equals((bool(*)(Reference,java::lang::Object))
@@ -518,8 +807,129 @@ __Array_VT<Ptr<T>> __Array<Ptr<T>>::__vtable;
 
 // ========================================================================
 
+// Rectangular arrays of primitives laid out in one block, for the
+// translator's -contiguousArrays option.  The block holds the headers of all
+// levels first and then every element, row after row, so a whole matrix is
+// one allocation and its rows are evenly strided.
+//
+// Only the outermost array is reference counted.  Every row carries a
+// reference that is never released and goes along with the block, which the
+// outermost array frees through its own vtable.  The translator only lays
+// out arrays none of whose rows is ever referenced on its own.
+template <typename T>
+struct Contiguous
+{
+    // The bytes of the headers of an array of the given dimensions.
+    static size_t headers(const int32_t*)
+    {
+        return aligned(sizeof(__Array<T>));
+    }
+
+    // The bytes of the elements of an array of the given dimensions.
+    static size_t elements(const int32_t* dims)
+    {
+        return dims[0] * sizeof(T);
+    }
+
+    static __Array<T>* build(const int32_t* dims, char*& header, char*& element)
+    {
+        __Array<T>* row = ::new (header) __Array<T>(dims[0], (T*) element);
+        header += headers(dims);
+        element += elements(dims);
+        return row;
+    }
+
+    // Ends the lifetime of a header built in the block.
+    static void destroy(__Array<T>* row)
+    {
+        row->~__Array<T>();
+    }
+};
+
+template <typename T>
+struct Contiguous<Ptr<__Array<T> > >
+{
+    typedef Contiguous<T> Row;
+    typedef __Array<Ptr<__Array<T> > > Level;
+
+    static size_t headers(const int32_t* dims)
+    {
+        return aligned(sizeof(Level)) + aligned(dims[0] * sizeof(Array<T>))
+               + dims[0] * Row::headers(dims + 1);
+    }
+
+    static size_t elements(const int32_t* dims)
+    {
+        return dims[0] * Row::elements(dims + 1);
+    }
+
+    static Level* build(const int32_t* dims, char*& header, char*& element)
+    {
+        Array<T>* rows = (Array<T>*) (header + aligned(sizeof(Level)));
+        Level* level = ::new (header) Level(dims[0], rows);
+        header += aligned(sizeof(Level)) + aligned(dims[0] * sizeof(Array<T>));
+
+        for (int32_t i = 0; i < dims[0]; i++)
+        {
+            __Array<T>* row = Row::build(dims + 1, header, element);
+            row->__rc.acquire();
+            rows[i] = row;
+        }
+        return level;
+    }
+
+    // Ends the lifetime of the headers of a level and all levels below it.
+    // The references to the rows go along with the block unreleased, but
+    // the rows' counts are destroyed, so the cycle collector forgets them.
+    static void destroy(Level* level)
+    {
+        for (int32_t i = 0; i < level->length; i++) Row::destroy(level->__data[i].raw());
+        level->~Level();
+    }
+
+    // The destructor of the outermost array, which frees the whole block.
+    static void __delete(Level* addr)
+    {
+        destroy(addr);
+        deallocateBlock(addr);
+    }
+
+    // The vtable of the outermost array.
+    static __Array_VT<Ptr<__Array<T> > > __vtable;
+};
+
+template <typename T>
+__Array_VT<Ptr<__Array<T> > > Contiguous<Ptr<__Array<T> > >::__vtable(&Contiguous<Ptr<__Array<T> > >::__delete);
+
+// Allocates a contiguous array of elements T, which is an array type itself,
+// with the given non-negative dimensions and every element zeroed.
+template <typename T>
+__Array<T>* contiguous(std::initializer_list<int32_t> dims)
+{
+    size_t headers = Contiguous<T>::headers(dims.begin());
+    size_t elements = Contiguous<T>::elements(dims.begin());
+
+    char* header = (char*) allocateBlock(headers + elements);
+    char* element = header + headers;
+    std::memset(element, 0, elements);
+
+    __Array<T>* array = Contiguous<T>::build(dims.begin(), header, element);
+    array->__vptr = &Contiguous<T>::__vtable;
+    return array;
+}
+
+// ========================================================================
+
 // Template functions for run-time checks go below.
 
+// Template function to pass a field read as a fresh reference, so that a
+// borrowed (const reference) parameter never aliases the field itself.
+template <typename T>
+T copy(const T& t)
+{
+    return t;
+}
+
 // Template function to check against null values.
 template <typename T>
 void checkNotNull(T object)
@@ -530,6 +940,54 @@ void checkNotNull(T object)
     }
 }
 
+// The guard of a synchronized block or method, which holds the monitor of
+// the object from its construction to the end of the block, including when
+// the block is left by an exception.  Without -threadSafe there is only one
+// thread, so the guard just checks for null.
+class Synchronized
+{
+#if RT_THREADS
+    Monitor& monitor;
+#endif
+
+    Synchronized(const Synchronized&) = delete;
+    Synchronized& operator=(const Synchronized&) = delete;
+
+public:
+    template <typename T>
+    explicit Synchronized(const Ptr<T>& object)
+#if RT_THREADS
+        : monitor((checkNotNull(object), object->__rc.monitor))
+    {
+        monitor.lock();
+    }
+#else
+    {
+        checkNotNull(object);
+    }
+#endif
+
+    // A static synchronized method holds the monitor of its class.
+    explicit Synchronized(java::lang::__Class* k)
+#if RT_THREADS
+        : monitor(k->__rc.monitor)
+    {
+        monitor.lock();
+    }
+#else
+    {
+        (void) k;
+    }
+#endif
+
+#if RT_THREADS
+    ~Synchronized()
+    {
+        monitor.unlock();
+    }
+#endif
+};
+
 // Template function to check array access is within bounds.
 template <typename T>
 void checkIndex(Array<T> array, int32_t index)
@@ -540,28 +998,48 @@ void checkIndex(Array<T> array, int32_t index)
     }
 }
 
+// Function to test whether o, which is not null, is an instance of class c.
+// Classes no deeper than the display are answered from o's vtable, without
+// a virtual call or reference counting, any other class asks
+// Class.isInstance.  getClass() is final, so __is_a is o's class.
+inline bool isInstance(java::lang::__Class* c, java::lang::__Object* o)
+{
+    if (0 == c->component.raw() && c->depth < java::lang::__Class::DISPLAY)
+    {
+        java::lang::__Class* k = o->__vptr->__is_a.raw();
+        return k->depth >= c->depth && k->display[c->depth] == c;
+    }
+    return c->__vptr->isInstance(c, o);
+}
+
 // Template function to check array stores.
 template <typename T, typename U>
 void checkStore(Array<T> array, U object)
 {
-    if (null() != (java::lang::Object) object)
-    {
-        java::lang::Class t1 = array->__vptr->getClass(array);
-        java::lang::Class t2 = t1->__vptr->getComponentType(t1);
+    java::lang::__Object* o = (java::lang::__Object*) object.raw();
 
-        if (! t2->__vptr->isInstance(t2, (java::lang::Object) object))
-        {
-            throw java::lang::ArrayStoreException();
-        }
+    if (0 != o && ! isInstance(array->__vptr->__is_a->component.raw(), o))
+    {
+        throw java::lang::ArrayStoreException();
     }
 }
 
+// Template function for instanceof, the object is evaluated once and null is
+// never an instance of anything.
+template <typename T>
+bool instanceOf(java::lang::__Class* k, T object)
+{
+    java::lang::__Object* o = (java::lang::__Object*) object.raw();
+    return 0 != o && isInstance(k, o);
+}
+
+// Template function for casts, null casts to any type.
 template<typename T, typename U>
 T java_cast(U object)
 {
-    java::lang::Class c = T::value_type::__class();
+    java::lang::__Object* o = (java::lang::__Object*) object.raw();
 
-    if (!c->__vptr->isInstance(c, object))
+    if (0 != o && ! isInstance(T::value_type::__class(), o))
         throw java::lang::ClassCastException();
 
     return T(object);
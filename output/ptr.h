@@ -1,6 +1,49 @@
 #pragma once
 
+#include <cstddef>
+#include <cstdlib>
 #include <cstring>
+#include <new>
+#include <type_traits>
+
+// Switches chosen by the translator's command line, see RuntimeConfig.
+#if defined(__has_include)
+#if __has_include("rt_config.h")
+#include "rt_config.h"
+#endif
+#endif
+
+#ifndef RT_UNBUFFERED_STDOUT
+#define RT_UNBUFFERED_STDOUT 0
+#endif
+
+#ifndef RT_THREADS
+#define RT_THREADS 0
+#endif
+
+// With -threadSafe every thread allocates from its own arena or pools, and
+// objects shared between threads are counted and locked atomically.
+#if RT_THREADS
+#include <atomic>
+#include <thread>
+#define RT_THREAD_LOCAL thread_local
+#else
+#define RT_THREAD_LOCAL
+#endif
+
+#ifndef RT_CYCLES
+#define RT_CYCLES 0
+#endif
+
+// Counters for the benchmarks, see bench/bench.sh.  Not chosen by the
+// translator, the benchmarks compile with -DRT_STATS=1.
+#ifndef RT_STATS
+#define RT_STATS 0
+#endif
+
+#if RT_CYCLES && RT_THREADS
+#error "-cycleCollector does not support -threadSafe"
+#endif
 
 #if 0
 #include <iostream>
@@ -40,11 +83,321 @@ struct array_policy
     }
 };
 
+#if RT_CYCLES
+struct RefCount;
+
+// The cycle collector of -cycleCollector, see java_lang.cpp.  An object whose
+// count drops without reaching zero may have just become part of a garbage
+// cycle, so it is remembered as a root.  Once enough roots are remembered
+// they are examined at the next allocation, where no object is half built or
+// half destroyed.
+namespace cycles
+{
+enum Color { BLACK, GRAY, WHITE, PURPLE, GARBAGE };
+
+// Whether enough roots are remembered to collect.
+extern bool due;
+
+void suspect(RefCount* rc);
+void forget(RefCount* rc);
+void collect();
+}
+#endif
+
+#if RT_STATS
+namespace stats
+{
+// The objects and arrays allocated through the runtime, see java_lang.cpp.
+extern size_t objects;
+}
+#endif
+
+// Called by every allocation before it takes any memory.
+inline void beforeAllocate()
+{
+#if RT_STATS
+    ++stats::objects;
+#endif
+#if RT_CYCLES
+    if (cycles::due) cycles::collect();
+#endif
+}
+
+#if RT_ARENA
+// A bump-pointer arena, memory is handed out in order from large chunks and
+// never given back one object at a time.  The arena is deliberately never
+// destroyed, objects held by statics may still be released while the program
+// exits, so its chunks are returned along with the rest of the process.
+class Arena
+{
+    static const size_t CHUNK = 1 << 20;
+    static const size_t ALIGN = alignof(std::max_align_t);
+
+    char* next;
+    char* end;
+
+public:
+    Arena() : next(0), end(0) {}
+
+    void* allocate(size_t size)
+    {
+        size = (size + ALIGN - 1) & ~(ALIGN - 1);
+        if (size > (size_t) (end - next))
+        {
+            // the rest of the current chunk is abandoned
+            size_t bytes = size > CHUNK ? size : CHUNK;
+            next = (char*) std::malloc(bytes);
+            if (0 == next) throw std::bad_alloc();
+            end = next + bytes;
+        }
+        void* addr = next;
+        next += size;
+        return addr;
+    }
+};
+
+inline Arena& arena()
+{
+    static RT_THREAD_LOCAL Arena* instance = new Arena();
+    return *instance;
+}
+
+// Every Java object of layout T is allocated through these, see operator new
+// in each layout.
+template <typename T>
+inline void* allocate(size_t size)
+{
+    beforeAllocate();
+    return arena().allocate(size);
+}
+
+// Reference counting still runs destructors, only the memory stays in the arena.
+template <typename T>
+inline void deallocate(void*)
+{
+}
+
+// Blocks whose size differs from object to object, see allocateBlock below.
+inline void* allocateBlock(size_t size)
+{
+    beforeAllocate();
+    return arena().allocate(size);
+}
+
+inline void deallocateBlock(void*)
+{
+}
+#elif RT_POOL
+// A free list per layout.  All objects of a class have the same size, so a
+// freed object is simply handed to the next allocation of that class.  Memory
+// is taken from the system a slab at a time and kept until the program exits.
+template <typename T>
+struct Pool
+{
+    union Block
+    {
+        Block* next;
+        typename std::aligned_storage<sizeof(T), alignof(T)>::type storage;
+    };
+
+    static const size_t SLAB = 64;
+
+    // zero initialized before any constructor runs, so usable from any static
+    static RT_THREAD_LOCAL Block* free;
+
+    static void* allocate()
+    {
+        if (0 == free)
+        {
+            Block* slab = static_cast<Block*>(::operator new(SLAB * sizeof(Block)));
+            for (size_t i = 0; i < SLAB; i++) slab[i].next = i + 1 < SLAB ? &slab[i + 1] : 0;
+            free = slab;
+        }
+        Block* block = free;
+        free = block->next;
+        return block;
+    }
+
+    static void deallocate(void* addr)
+    {
+        Block* block = static_cast<Block*>(addr);
+        block->next = free;
+        free = block;
+    }
+};
+
+template <typename T>
+RT_THREAD_LOCAL typename Pool<T>::Block* Pool<T>::free = 0;
+
+template <typename T>
+inline void* allocate(size_t)
+{
+    beforeAllocate();
+    return Pool<T>::allocate();
+}
+
+template <typename T>
+inline void deallocate(void* addr)
+{
+    Pool<T>::deallocate(addr);
+}
+#else
+template <typename T>
+inline void* allocate(size_t size)
+{
+    beforeAllocate();
+    return ::operator new(size);
+}
+
+template <typename T>
+inline void deallocate(void* addr)
+{
+    ::operator delete(addr);
+}
+#endif
+
+#if !RT_ARENA
+// Blocks whose size differs from object to object, such as a primitive
+// array together with its elements.  Pools only hold blocks of one size, so
+// these always come from the system unless there is an arena.
+inline void* allocateBlock(size_t size)
+{
+    beforeAllocate();
+    return ::operator new(size);
+}
+
+inline void deallocateBlock(void* addr)
+{
+    ::operator delete(addr);
+}
+#endif
+
+#if RT_THREADS
+// The lock of a synchronized block or method, reentrant as Java's monitors
+// are.  A thread is told apart by the address of a thread local, so the lock
+// is two words in the object's header and never allocates.  Waiting threads
+// spin, yielding to others, since translated programs rarely contend.
+class Monitor
+{
+    std::atomic<const void*> owner;
+    size_t depth;
+
+    static const void* self()
+    {
+        static thread_local char id;
+        return &id;
+    }
+
+public:
+    Monitor() : owner(0), depth(0) {}
+
+    void lock()
+    {
+        const void* me = self();
+        // only this thread can have stored itself as the owner
+        if (me != owner.load(std::memory_order_relaxed))
+        {
+            const void* none = 0;
+            while (!owner.compare_exchange_weak(none, me, std::memory_order_acquire, std::memory_order_relaxed))
+            {
+                none = 0;
+                std::this_thread::yield();
+            }
+        }
+        ++depth;
+    }
+
+    void unlock()
+    {
+        if (0 == --depth) owner.store(0, std::memory_order_release);
+    }
+};
+#endif
+
+// The reference count that every Java object carries in its header, directly
+// after its vptr, so that wrapping an object in a Ptr never allocates.
+// Copying an object must not copy its count, the references to the original
+// are not references to the copy.
+//
+// With -threadSafe the count is atomic and the header also holds the
+// object's monitor.  Taking a reference only needs to be atomic, dropping
+// one also orders every use of the object before its deletion.
+//
+// With -cycleCollector the header also holds the object's color and its
+// place among the collector's roots, 0 if it is not a root.
+struct RefCount
+{
+#if RT_THREADS
+    std::atomic<size_t> count;
+    Monitor monitor;
+#else
+    size_t count;
+#endif
+#if RT_CYCLES
+    unsigned char color;
+    size_t root;
+
+    RefCount() : count(0), color(cycles::BLACK), root(0) {}
+    RefCount(const RefCount&) : count(0), color(cycles::BLACK), root(0) {}
+
+    ~RefCount()
+    {
+        if (0 != root) cycles::forget(this);
+    }
+#else
+    RefCount() : count(0) {}
+    RefCount(const RefCount&) : count(0) {}
+#endif
+
+    RefCount& operator=(const RefCount&)
+    {
+        return *this;
+    }
+
+    void acquire()
+    {
+#if RT_THREADS
+        count.fetch_add(1, std::memory_order_relaxed);
+#else
+        ++count;
+#endif
+    }
+
+    // Drops a reference, true if it was the last one.
+    bool release()
+    {
+#if RT_THREADS
+        return 1 == count.fetch_sub(1, std::memory_order_acq_rel);
+#elif RT_CYCLES
+        if (0 == --count) return true;
+        if (0 == root) cycles::suspect(this);
+        return false;
+#else
+        return 0 == --count;
+#endif
+    }
+};
+
+// T must have a RefCount member named __rc, at the same offset in every
+// layout (right after __vptr), since Ptr converts between unrelated layouts.
 template<typename T, template<typename> class P = java_policy>
 class Ptr
 {
     T* addr;
-    size_t* counter;
+
+    void acquire() const
+    {
+        if (0 != addr) addr->__rc.acquire();
+    }
+
+    void release()
+    {
+        if (0 != addr && addr->__rc.release())
+        {
+            TRACE("delete addr");
+            policy_type::destroy(addr);
+        }
+    }
 
 public:
     typedef P<T> policy_type;
@@ -54,39 +407,32 @@ public:
     friend class Ptr;
 
     // constructor to wrap raw pointer (and default constructor)
-    Ptr(T* addr = 0) : addr(addr), counter(new size_t(1))
+    Ptr(T* addr = 0) : addr(addr)
     {
         TRACE(addr);
+        acquire();
     }
 
     // copy constructor
-    Ptr(const Ptr& other) : addr(other.addr), counter(other.counter)
+    Ptr(const Ptr& other) : addr(other.addr)
     {
         TRACE(addr);
-        ++(*counter);
+        acquire();
     }
 
     // conversion constructor
     template<typename U>
-    Ptr(const Ptr<U, P>& other) : addr((T*) other.addr), counter(other.counter)
+    Ptr(const Ptr<U, P>& other) : addr((T*) other.addr)
     {
         TRACE(addr);
-        ++(*counter);
+        acquire();
     }
 
     // destructor
     ~Ptr()
     {
         TRACE(addr);
-        if(0 == --(*counter))
-        {
-            if (0 != addr)
-            {
-                TRACE("delete addr");
-                policy_type::destroy(addr);
-            }
-            delete counter;
-        }
+        release();
     }
 
     // assignment operator
@@ -95,14 +441,11 @@ public:
         TRACE(addr);
         if (addr != right.addr)
         {
-            if (0 == --(*counter))
-            {
-                if (addr != 0) policy_type::destroy(addr);
-                delete counter;
-            }
-            addr = right.addr;
-            counter = right.counter;
-            ++(*counter);
+            // take the new reference first, releasing the old object may destroy right
+            T* next = right.addr;
+            if (0 != next) next->__rc.acquire();
+            release();
+            addr = next;
         }
         return *this;
     }
@@ -138,4 +481,15 @@ public:
 
 };
 
+// Wraps an object living in a method's frame, which the translator only does
+// for objects that never outlive the method.  The frame holds a reference of
+// its own that is never released, so the count can't drop to zero and no
+// Ptr ever deletes the object, it is destroyed when the frame is left.
+template<typename T>
+Ptr<T> pin(T& object)
+{
+    object.__rc.acquire();
+    return Ptr<T>(&object);
+}
+
 }
\ No newline at end of file
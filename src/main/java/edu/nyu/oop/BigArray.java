@@ -25,19 +25,20 @@ public class BigArray {
     }
 
     public String dump() {
-        String startDeclaration = "template<>\njava::lang::Class __Array<";
+        String startDeclaration = "template<>\njava::lang::__Class* __Array<";
         StringBuilder temp = new StringBuilder(startDeclaration);
         temp.append(packageName);
         temp.append("::__class()\n");
         temp.append("{\n");
-        temp.append("  static java::lang::Class k =\n");
+        temp.append("  static java::lang::__Class* k;\n");
+        temp.append("  if (0 == k) k = registerClass(\n");
         temp.append("\tnew java::lang::__Class(literal(\"[L");
         temp.append(packageName.replace("::", "."));
         temp.append(";\"),\n");
         temp.append("\t\t\t\t\t\t\tjava::lang::__Object::__class(),\n");
         temp.append("\t\t\t\t\t\t\t");
         temp.append(packageName.replace(className, "__" + className));
-        temp.append("::__class());\n");
+        temp.append("::__class()));\n");
         temp.append("return k;\n");
         temp.append("}\n");
         return temp.toString();
@@ -69,7 +69,14 @@ public class Boot extends Tool {
         bool("printPhase4", "printPhase4", false, "Print the output of phase 4").
         bool("printPhase5", "printPhase5", false, "Print the output of phase 5").
         bool("printMangling", "printMangling", false, "Print a method mangling test").
-        bool("translate", "translate", false, "Translate an input file");
+        bool("translate", "translate", false, "Translate an input file").
+        bool("streamTranslate", "streamTranslate", false, "Translate an input file, emitting each compilation unit as soon as it is ready").
+        bool("arena", "arena", false, "Allocate the translated program's objects from an arena which is never freed before exit").
+        bool("pool", "pool", false, "Recycle the translated program's objects through a free list per class").
+        bool("unbufferedStdout", "unbufferedStdout", false, "Write the translated program's output line by line, for interactive programs").
+        bool("contiguousArrays", "contiguousArrays", false, "Allocate rectangular primitive arrays whose rows are never used on their own as one block").
+        bool("threadSafe", "threadSafe", false, "Count references atomically and lock monitors, for translated programs sharing objects between threads").
+        bool("cycleCollector", "cycleCollector", false, "Collect the garbage cycles reference counting alone never frees, not with -threadSafe");
     }
 
     @Override
@@ -77,6 +84,9 @@ public class Boot extends Tool {
         super.prepare();
         // Perform consistency checks on command line arguments.
         // (i.e. are there some commands that cannot be run together?)
+        if (runtime.test("cycleCollector") && runtime.test("threadSafe")) {
+            runtime.error("can't collect cycles in thread-safe mode, use -cycleCollector or -threadSafe");
+        }
         logger.debug("This is a debugging statement."); // Example logging statement, you may delete
     }
 
@@ -163,13 +173,11 @@ public class Boot extends Tool {
             }
 
             ArrayList<Node> cppAsts = new ArrayList<Node>();
-            HashMap<String, String> childrenToParents = new HashMap<String, String>();
+            Phase2.Hierarchy hierarchy = new Phase2.Hierarchy();
 
             for (Node javaAst : javaAsts) {
-                Phase2 phase2 = new Phase2();
-                Node cppAst = phase2.runPhase2(javaAst);
+                Node cppAst = Phase2.runPhase2(javaAst, hierarchy);
                 cppAsts.add(cppAst);
-                childrenToParents.putAll(phase2.childrenToParents);
             }
 
             for (GNode cppAst : javaAsts) {
@@ -214,16 +222,14 @@ public class Boot extends Tool {
             }
 
             ArrayList<Node> cppAsts = new ArrayList<Node>();
-            HashMap<String, String> childrenToParents = new HashMap<String, String>();
+            Phase2.Hierarchy hierarchy = new Phase2.Hierarchy();
 
             for (Node javaAst : javaAsts) {
-                Phase2 phase2 = new Phase2();
-                Node cppAst = phase2.runPhase2(javaAst);
+                Node cppAst = Phase2.runPhase2(javaAst, hierarchy);
                 cppAsts.add(cppAst);
-                childrenToParents.putAll(phase2.childrenToParents);
             }
 
-            Phase4 phase4 = new Phase4(runtime, childrenToParents, inits);
+            Phase4 phase4 = new Phase4(runtime, hierarchy.childrenToParents, hierarchy.vtableTargets, hierarchy.thisCalls, inits);
             ArrayList<GNode> asts = new ArrayList<GNode>();
 
             for (Node javaAst : javaAsts) {
@@ -249,16 +255,14 @@ public class Boot extends Tool {
             }
 
             ArrayList<Node> cppAsts = new ArrayList<Node>();
-            HashMap<String, String> childrenToParents = new HashMap<String, String>();
+            Phase2.Hierarchy hierarchy = new Phase2.Hierarchy();
 
             for (Node javaAst : javaAsts) {
-                Phase2 phase2 = new Phase2();
-                Node cppAst = phase2.runPhase2(javaAst);
+                Node cppAst = Phase2.runPhase2(javaAst, hierarchy);
                 cppAsts.add(cppAst);
-                childrenToParents.putAll(phase2.childrenToParents);
             }
 
-            Phase4 phase4 = new Phase4(runtime, childrenToParents, inits);
+            Phase4 phase4 = new Phase4(runtime, hierarchy.childrenToParents, hierarchy.vtableTargets, hierarchy.thisCalls, inits);
             ArrayList<GNode> asts = new ArrayList<GNode>();
 
             for (Node javaAst : javaAsts) {
@@ -282,6 +286,10 @@ public class Boot extends Tool {
             runtime.console().format(n).pln().flush();
         }
 
+        if (runtime.test("translate") || runtime.test("streamTranslate")) {
+            RuntimeConfig.write(runtime);
+        }
+
         if (runtime.test("translate")) {
             // phase 1
             // process all dependencies, name mangling for method overloading
@@ -301,13 +309,11 @@ public class Boot extends Tool {
             // Node cppAst = Phase2.runPhase2(javaAsts.get(0));
 
             ArrayList<Node> cppAsts = new ArrayList<Node>();
-            HashMap<String, String> childrenToParents = new HashMap<String, String>();
+            Phase2.Hierarchy hierarchy = new Phase2.Hierarchy();
 
             for (Node javaAst : javaAsts) {
-                Phase2 phase2 = new Phase2();
-                Node cppAst = phase2.runPhase2(javaAst);
+                Node cppAst = Phase2.runPhase2(javaAst, hierarchy);
                 cppAsts.add(cppAst);
-                childrenToParents.putAll(phase2.childrenToParents);
             }
 
             Phase3 phase3 = new Phase3();
@@ -318,7 +324,7 @@ public class Boot extends Tool {
                 phase3.print((GNode) cppAst);
             }
 
-            Phase4 phase4 = new Phase4(runtime, childrenToParents, inits);
+            Phase4 phase4 = new Phase4(runtime, hierarchy.childrenToParents, hierarchy.vtableTargets, hierarchy.thisCalls, inits);
             ArrayList<GNode> asts = new ArrayList<GNode>();
 
             for (Node javaAst : javaAsts) {
@@ -332,6 +338,10 @@ public class Boot extends Tool {
                 printer.print( node);
             }
         }
+
+        if (runtime.test("streamTranslate")) {
+            new StreamingTranslator(runtime).translate(n);
+        }
     }
 
     /**
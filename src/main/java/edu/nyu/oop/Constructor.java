@@ -15,11 +15,11 @@ import java.util.ArrayList;
 
 public class Constructor {
 
-    public String accessModifier;
+    public Modifier accessModifier;
     public String name;
     public ArrayList<Parameter> parameters;
 
-    public Constructor(String accessModifier, String name, ArrayList<Parameter> parameters) {
+    public Constructor(Modifier accessModifier, String name, ArrayList<Parameter> parameters) {
         this.accessModifier = accessModifier;
         this.name = name;
         this.parameters = parameters;
@@ -32,7 +32,7 @@ public class Constructor {
      * @return true if two constructors are the same, false otherwise
      */
     public boolean equals(Constructor other) {
-        if (this.accessModifier.equals(other.accessModifier) && this.name.equals(other.name)) {
+        if (this.accessModifier == other.accessModifier && this.name.equals(other.name)) {
             if (this.parameters == null && other.parameters == null) return true;
             else if (this.parameters.size() == other.parameters.size()) {
                 for (int i = 0; i < this.parameters.size(); i++) {
@@ -4,6 +4,7 @@
  * no methods are implemented, only a constructor that initialzes the object
  * furthermore there is a "hidden" field inheritedFrom which is used in
  * determinig where a vtable field initially came from in Phase 2 logic
+ * type names are interned since most fields share a handful of types
  *
  * @author Goktug Saatcioglu
  * @author Shenghao Lin
@@ -15,17 +16,17 @@ package edu.nyu.oop;
 
 public class Field {
 
-    public String accessModifier;
+    public Modifier accessModifier;
     public boolean isStatic;
     public String fieldType;
     public String fieldName;
     public String initial;
     public String inheritedFrom;
 
-    public Field(String accessModifier, boolean isStatic, String fieldType, String fieldName, String initial) {
+    public Field(Modifier accessModifier, boolean isStatic, String fieldType, String fieldName, String initial) {
         this.accessModifier = accessModifier;
         this.isStatic = isStatic;
-        this.fieldType = fieldType;
+        this.fieldType = fieldType.intern();
         this.fieldName = fieldName;
         this.initial = initial;
         this.inheritedFrom = "";
@@ -0,0 +1,52 @@
+/**
+ * Modifier enum that replaces the modifier strings held by the Phase 2
+ * layout model (Field, Method, VMethod and Constructor), every layout
+ * object shares one constant instead of its own copy of a string like
+ * "public", and comparisons become reference checks
+ * NONE stands for package private, i.e. no modifier at all
+ * of converts the keyword found in a Modifiers node of the Java AST
+ *
+ * @version 1.0
+ */
+
+package edu.nyu.oop;
+
+public enum Modifier {
+
+    NONE(""),
+    PUBLIC("public"),
+    PROTECTED("protected"),
+    PRIVATE("private"),
+    ABSTRACT("abstract"),
+    FINAL("final"),
+    NATIVE("native"),
+    SYNCHRONIZED("synchronized"),
+    TRANSIENT("transient"),
+    VOLATILE("volatile"),
+    STRICTFP("strictfp");
+
+    private final String keyword;
+
+    Modifier(String keyword) {
+        this.keyword = keyword;
+    }
+
+    /**
+     * Converts a Java modifier keyword into its constant
+     *
+     * @param  keyword modifier as it appears in the source, e.g. "private"
+     *
+     * @return matching Modifier, NONE if keyword isn't a modifier
+     */
+    public static Modifier of(String keyword) {
+        for (Modifier m : values()) {
+            if (m.keyword.equals(keyword)) return m;
+        }
+        return NONE;
+    }
+
+    @Override
+    public String toString() {
+        return keyword;
+    }
+}
@@ -6,9 +6,10 @@
  * it contains array lists of fields, constructors and methods
  * the class VTable is used to represent the vtable layut of an object
  * it contains array lists of fields and vmethods
- * upon initialization of this class, vptr, vtable, is_a and class constructor
+ * upon initialization of this class, vptr, refcount, vtable, is_a and class constructor
  * are added to releveant representations automatically to ease some work on
- * Phase 2
+ * Phase 2, the lists are presized to what a typical class needs since
+ * thousands of reps may be alive at once
  *
  * @author Goktug Saatcioglu
  * @author Shenghao Lin
@@ -28,14 +29,14 @@ public class ObjectRep {
     public VTable vtable;
 
     public static class ClassRep {
-        public ArrayList<Field> fields = new ArrayList<Field>();
-        public ArrayList<Constructor> constructors = new ArrayList<Constructor>();
-        public ArrayList<Method> methods = new ArrayList<Method>();
+        public ArrayList<Field> fields = new ArrayList<Field>(4);
+        public ArrayList<Constructor> constructors = new ArrayList<Constructor>(2);
+        public ArrayList<Method> methods = new ArrayList<Method>(4);
     }
 
     public static class VTable {
-        public ArrayList<Field> fields = new ArrayList<Field>();
-        public ArrayList<VMethod> methods = new ArrayList<VMethod>();
+        public ArrayList<Field> fields = new ArrayList<Field>(6);
+        public ArrayList<VMethod> methods = new ArrayList<VMethod>(6);
     }
 
     public ObjectRep(String name) {
@@ -44,20 +45,23 @@ public class ObjectRep {
 
         this.classRep = new ClassRep();
         // __vptr
-        classRep.fields.add(new Field("public", false, "__" + this.name + "_VT*", "__vptr", ""));
+        classRep.fields.add(new Field(Modifier.PUBLIC, false, "__" + this.name + "_VT*", "__vptr", ""));
+        // __rc, the reference count the runtime expects right after __vptr
+        classRep.fields.add(new Field(Modifier.PUBLIC, false, "__rt::RefCount", "__rc", ""));
         // __vtable
-        classRep.fields.add(new Field("public", true, "__" + this.name + "_VT", "__vtable", ""));
+        classRep.fields.add(new Field(Modifier.PUBLIC, true, "__" + this.name + "_VT", "__vtable", ""));
         // default constructor
-        classRep.constructors.add(new Constructor("public", this.name, new ArrayList<Parameter>()));
+        classRep.constructors.add(new Constructor(Modifier.PUBLIC, this.name, new ArrayList<Parameter>()));
         ArrayList<Parameter> temp = new ArrayList<Parameter>();
-        temp.add(new Parameter(this.name, "__this"));
-        classRep.constructors.add(new Constructor("public", "init", temp));
-        // class name
-        classRep.methods.add(new Method("public", true, "Class", "__class", new ArrayList<Parameter>()));
+        // the default constructor never assigns __this, so it is borrowed, see EscapeCheck
+        temp.add(new Parameter("const " + this.name + "&", "__this"));
+        classRep.constructors.add(new Constructor(Modifier.PUBLIC, "init", temp));
+        // class name, a borrowed pointer to the class registered for good, see __rt::registerClass
+        classRep.methods.add(new Method(Modifier.PUBLIC, true, "__Class*", "__class", new ArrayList<Parameter>()));
 
         this.vtable = new VTable();
         // __is_a
-        vtable.fields.add(new Field("public", false, "Class", "__is_a", ""));
-        vtable.methods.add(new VMethod("public", false, "__is_a", "(__" + this.name + "::__class())"));
+        vtable.fields.add(new Field(Modifier.PUBLIC, false, "Class", "__is_a", ""));
+        vtable.methods.add(new VMethod(Modifier.PUBLIC, false, "__is_a", "(__" + this.name + "::__class())"));
     }
 }
\ No newline at end of file
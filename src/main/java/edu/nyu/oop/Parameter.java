@@ -2,6 +2,7 @@
  * Parameter object that holds information a method declaration would have
  * these are: type and name
  * no methods are implemented, only a constructor that initialzes the object
+ * the type is interned since most parameters share a handful of types
  *
  * @author Goktug Saatcioglu
  * @author Shenghao Lin
@@ -17,7 +18,7 @@ public class Parameter {
     public String name;
 
     public Parameter(String type, String name) {
-        this.type = type;
+        this.type = type.intern();
         this.name = name;
     }
 
@@ -20,17 +20,35 @@ import xtc.tree.GNode;
 import xtc.tree.Node;
 import xtc.tree.Visitor;
 
+import edu.nyu.oop.util.EscapeCheck;
 import edu.nyu.oop.util.NodeUtil;
 
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Set;
 
 public class Phase2 {
 
-    // HashMap of children to their parents
-    public static HashMap<String, String> childrenToParents = new HashMap<String, String>();
+    /**
+     * What Phase 2 learns about the class hierarchy for Phase 4, collected into the instance a caller passes
+     * to runPhase2 so that separate translations never share it
+     */
+    public static class Hierarchy {
+        // HashMap of children to their parents
+        public final HashMap<String, String> childrenToParents = new HashMap<String, String>();
+
+        // HashMap of classes to their vtable methods and the class whose definition fills each slot
+        public final HashMap<String, HashMap<String, String>> vtableTargets = new HashMap<String, HashMap<String, String>>();
+
+        // HashMap of classes to their methods and what each does with `this`, see EscapeCheck.thisCalls, constructors
+        // and field initializers together as "<init>", a null set where `this` escapes
+        public final HashMap<String, HashMap<String, Set<String>>> thisCalls = new HashMap<String, HashMap<String, Set<String>>>();
+    }
+
+    // java.lang layouts shared by every run, see initializeRepList
+    private static final ObjectRepList PRELUDE = buildPrelude();
 
     /**
      * main method, calls visitor, populates ObjectRepList, build CPP AST
@@ -40,17 +58,29 @@ public class Phase2 {
      * @return root node of AST with built layout and structure for each child and itself
      */
     public static Node runPhase2(Node n) {
+        return runPhase2(n, new Hierarchy());
+    }
+
+    /**
+     * main method, calls visitor, populates ObjectRepList, build CPP AST
+     *
+     * @param         n root node of given AST parsed by Phase 1
+     * @param hierarchy collects the hierarchy facts of the classes in n
+     *
+     * @return root node of AST with built layout and structure for each child and itself
+     */
+    public static Node runPhase2(Node n, Hierarchy hierarchy) {
 
         // this was for printing contents of data structures before node processing, now that portion of the code has been commented out
         boolean dump = false;
 
         //Traverse Java AST
-        Phase2Visitor visitor = new Phase2Visitor();
+        Phase2Visitor visitor = new Phase2Visitor(hierarchy);
         visitor.traverse(n);
 
         //Build list of class representations (java.lang, inheritance)
         ObjectRepList unfilled = visitor.getObjectRepresentations();
-        ObjectRepList filled = getFilledObjectRepList(unfilled);
+        ObjectRepList filled = getFilledObjectRepList(unfilled, hierarchy);
 
         //Build C++ AST from class representations
         return buildCppAst(visitor.getPackageName(), filled);
@@ -68,6 +98,18 @@ public class Phase2 {
         private boolean mainFlag = false;
         private boolean constructorFlag = true;
         private boolean methodFlag = false;
+        private HashMap<String, HashMap<String, Set<String>>> thisCalls;
+
+        public Phase2Visitor() {
+            this(new Hierarchy());
+        }
+
+        /**
+         * @param hierarchy collects what the methods of each class do with `this`
+         */
+        public Phase2Visitor(Hierarchy hierarchy) {
+            this.thisCalls = hierarchy.thisCalls;
+        }
 
         /**
          * Visits Package Declaration and assigns packagename
@@ -89,6 +131,8 @@ public class Phase2 {
          */
         public void visitClassDeclaration(GNode node) {
             objectRepresentations.add(new ObjectRep(node.getString(1)));
+            thisCalls.put(node.getString(1), new HashMap<String, Set<String>>());
+            recordThisCalls("<init>", new HashSet<String>());
             mainFlag = false;
             constructorFlag = true;
             visit(node);
@@ -111,30 +155,31 @@ public class Phase2 {
          */
         public void visitConstructorDeclaration(GNode node) {
             // modifiers
-            String accessModifier = "";
+            Modifier accessModifier = Modifier.NONE;
             boolean isStatic = false;
 
             Iterator modifierIter = node.getNode(0).iterator();
             while (modifierIter.hasNext()) {
                 Node modifierNode = (Node) modifierIter.next();
                 if (modifierNode.getString(0).equals("static")) isStatic = true;
-                else accessModifier = modifierNode.getString(0);
+                else accessModifier = Modifier.of(modifierNode.getString(0));
             }
 
             // name
             String constructorName = node.getString(2);
 
-            // parameters
+            // parameters, the ones that don't escape are passed borrowed
+            Set<String> borrowed = EscapeCheck.borrowedParameters(node);
             ArrayList<Parameter> parameters = new ArrayList<Parameter>();
 
-            parameters.add(new Parameter(objectRepresentations.getCurrent().name, "__this"));
+            parameters.add(new Parameter(passing(objectRepresentations.getCurrent().name, "__this", borrowed), "__this"));
 
             Iterator parameterIter = node.getNode(3).iterator();
             while (parameterIter.hasNext()) {
                 Node parameterNode = (Node) parameterIter.next();
-                String parameterType = convertType(parameterNode.getNode(1).getNode(0).getString(0));
+                String parameterType = arrayOf(convertType(parameterNode.getNode(1).getNode(0).getString(0)), parameterNode.getNode(1).getNode(1));
                 String parameterName = parameterNode.getString(3);
-                parameters.add(new Parameter(parameterType, parameterName));
+                parameters.add(new Parameter(passing(parameterType, parameterName, borrowed), parameterName));
             }
 
             // add
@@ -145,6 +190,7 @@ public class Phase2 {
                 if (other.equals(constructor)) toAdd = false;
             }
             if (toAdd) objectRepresentations.getCurrent().classRep.constructors.add(constructor);
+            recordThisCalls("<init>", EscapeCheck.thisCalls(node));
 
             visit(node);
         }
@@ -160,14 +206,14 @@ public class Phase2 {
             methodFlag = true;
 
             // modifiers
-            String accessModifier = "";
+            Modifier accessModifier = Modifier.NONE;
             boolean isStatic = false;
 
             Iterator modifierIter = node.getNode(0).iterator();
             while (modifierIter.hasNext()) {
                 Node modifierNode = (Node) modifierIter.next();
                 if (modifierNode.getString(0).equals("static")) isStatic = true;
-                else accessModifier = modifierNode.getString(0);
+                else accessModifier = Modifier.of(modifierNode.getString(0));
             }
 
             // return type
@@ -185,22 +231,25 @@ public class Phase2 {
 
             if (mainFlag) returnType = "int32_t";
 
-            // parameters
+            // parameters, the ones that don't escape are passed borrowed
+            Set<String> borrowed = EscapeCheck.borrowedParameters(node);
+            String thisType = passing(objectRepresentations.getCurrent().name, "__this", borrowed);
             ArrayList<Parameter> parameters = new ArrayList<Parameter>();
-            if (returnType.equals("Placeholder")) parameters.add(new Parameter(objectRepresentations.getCurrent().name, "__this"));
-            else if (!isStatic) parameters.add(new Parameter(objectRepresentations.getCurrent().name, "__this"));
+            if (returnType.equals("Placeholder")) parameters.add(new Parameter(thisType, "__this"));
+            else if (!isStatic) parameters.add(new Parameter(thisType, "__this"));
 
             Iterator parameterIter = node.getNode(4).iterator();
             while (parameterIter.hasNext()) {
                 Node parameterNode = (Node) parameterIter.next();
-                String parameterType = convertType(parameterNode.getNode(1).getNode(0).getString(0));
+                String parameterType = arrayOf(convertType(parameterNode.getNode(1).getNode(0).getString(0)), parameterNode.getNode(1).getNode(1));
                 if (parameterType.equals("String") && mainFlag) parameterType = "__rt::Array<String>";
                 String parameterName = parameterNode.getString(3);
-                parameters.add(new Parameter(parameterType, parameterName));
+                parameters.add(new Parameter(passing(parameterType, parameterName, borrowed), parameterName));
             }
 
             // add
             Method method = new Method(accessModifier, isStatic, returnType, methodName, parameters);
+            recordThisCalls(returnType.equals("Placeholder") ? "<init>" : methodName, EscapeCheck.thisCalls(node));
             if (!returnType.equals("Placeholder")) objectRepresentations.getCurrent().classRep.methods.add(method);
             else {
                 if (constructorFlag) {
@@ -230,14 +279,14 @@ public class Phase2 {
          */
         public void visitFieldDeclaration(GNode node) {
             // modifiers
-            String accessModifier = "";
+            Modifier accessModifier = Modifier.NONE;
             boolean isStatic = false;
 
             Iterator modifierIter = node.getNode(0).iterator();
             while (modifierIter.hasNext()) {
                 Node modifierNode = (Node) modifierIter.next();
                 if (modifierNode.getString(0).equals("static")) isStatic = true;
-                else accessModifier = modifierNode.getString(0);
+                else accessModifier = Modifier.of(modifierNode.getString(0));
             }
 
             // type
@@ -252,7 +301,10 @@ public class Phase2 {
 
             // add if not declared in body of main or body of method (which can be a constructor or another method)
             Field field = new Field(accessModifier, isStatic, fieldType, fieldName, initial);
-            if (!mainFlag && !methodFlag) objectRepresentations.getCurrent().classRep.fields.add(field);
+            if (!mainFlag && !methodFlag) {
+                objectRepresentations.getCurrent().classRep.fields.add(field);
+                if (initial_node != null && !isStatic) recordThisCalls("<init>", EscapeCheck.thisCalls(node));
+            }
 
             visit(node);
         }
@@ -275,6 +327,47 @@ public class Phase2 {
             super.dispatch(node);
         }
 
+        /**
+         * Merges what one more method body does with `this` into the facts of the current class
+         *
+         * @param method mangled method name, "<init>" for constructors and field initializers
+         * @param  calls methods called on `this`, null if `this` escapes
+         */
+        public void recordThisCalls(String method, Set<String> calls) {
+            HashMap<String, Set<String>> methods = thisCalls.get(objectRepresentations.getCurrent().name);
+            if (calls == null || (methods.containsKey(method) && methods.get(method) == null)) methods.put(method, null);
+            else if (methods.containsKey(method)) methods.get(method).addAll(calls);
+            else methods.put(method, calls);
+        }
+
+        /**
+         * Converts a parameter type to the type it is passed as
+         *
+         * @param     type cpp type of the parameter
+         * @param     name name of the parameter
+         * @param borrowed parameters found not to escape by EscapeCheck
+         *
+         * @return  type as a const reference if borrowed, type o/w
+         */
+        public String passing(String type, String name, Set<String> borrowed) {
+            if (borrowed.contains(name)) return "const " + type + "&";
+            return type;
+        }
+
+        /**
+         * Wraps a parameter's element type once per dimension it is declared with
+         *
+         * @param       type cpp type of the elements
+         * @param dimensions Dimensions node of the parameter's type, null if it is no array
+         *
+         * @return  type of the array, type o/w
+         */
+        public String arrayOf(String type, Node dimensions) {
+            if (dimensions == null) return type;
+            for (int i = 0; i < dimensions.size(); i++) type = "__rt::Array<" + type + ">";
+            return type;
+        }
+
         /**
          * Converts from Java data types to C++ data types
          *
@@ -370,12 +463,24 @@ public class Phase2 {
      * @return  filled ObjectRepList of resolved ctable and data layouts for each object
      */
     public static ObjectRepList getFilledObjectRepList(ObjectRepList unfilled) {
+        return getFilledObjectRepList(unfilled, new Hierarchy());
+    }
+
+    /**
+     * As getFilledObjectRepList above, also records the parents and vtable targets of every class
+     *
+     * @param  unfilled unprocessed ObjectRepList from visitor
+     * @param hierarchy collects the parents and vtable targets
+     *
+     * @return  filled ObjectRepList of resolved ctable and data layouts for each object
+     */
+    public static ObjectRepList getFilledObjectRepList(ObjectRepList unfilled, Hierarchy hierarchy) {
 
         // manually add object, string, class
         ObjectRepList filled = initializeRepList();
 
         // fill with reps, in inheritance order
-        filled = fill(filled, unfilled);
+        filled = fill(filled, unfilled, hierarchy);
 
         // process reps
         for (ObjectRep rep : filled) {
@@ -403,7 +508,7 @@ public class Phase2 {
 
             // don't forget to update the parents after replacing so that logic works, "bubbling down"
             for (ObjectRep repSub : filled) {
-                if (repSub.parent != null) {
+                if (repSub.parent != null && !isPrelude(repSub)) {
                     int parentIndex = filled.getIndexFromName(repSub.parent.name);
                     repSub.parent = filled.get(parentIndex);
                 }
@@ -424,7 +529,7 @@ public class Phase2 {
             }
             // again, don't forget to update the parents after replacing so that logic works, "bubbling down"
             for (ObjectRep repSub : filled) {
-                if (repSub.parent != null) {
+                if (repSub.parent != null && !isPrelude(repSub)) {
                     int parentIndex = filled.getIndexFromName(repSub.parent.name);
                     repSub.parent = filled.get(parentIndex);
                 }
@@ -443,6 +548,18 @@ public class Phase2 {
         if(mainIndex != -1) filled.remove(mainIndex);
         */
 
+        // record which definition every vtable slot dispatches to, used by Phase 4 to find monomorphic calls
+        for (ObjectRep rep : filled) {
+            if (isPrelude(rep)) continue;
+            HashMap<String, String> targets = new HashMap<String, String>();
+            for (Field vField : rep.vtable.fields) {
+                String name = vField.fieldName.replaceFirst("\\*", "");
+                if (name.equals("__is_a") || name.equals("__delete")) continue;
+                targets.put(name, vField.inheritedFrom.equals("") ? "Object" : vField.inheritedFrom);
+            }
+            hierarchy.vtableTargets.put(rep.name, targets);
+        }
+
         // remove Object, String, and Class
         filled.remove(0);
         filled.remove(0);
@@ -478,6 +595,19 @@ public class Phase2 {
      * @return  filled ObjectRepList with proper inheritance hierarchy
      */
     public static ObjectRepList fill(ObjectRepList filled, ObjectRepList unfilled) {
+        return fill(filled, unfilled, new Hierarchy());
+    }
+
+    /**
+     * As fill above, also records the parent of every class
+     *
+     * @param    filled ObjectRepList with just Object, String and Class
+     * @param  unfilled ObjectRepList of visitor processed Objects
+     * @param hierarchy collects the parents
+     *
+     * @return  filled ObjectRepList with proper inheritance hierarchy
+     */
+    public static ObjectRepList fill(ObjectRepList filled, ObjectRepList unfilled, Hierarchy hierarchy) {
 
         //Add classes from unfilled, keep doing this until filled has same size as unfilled
         while (filled.size() < unfilled.size() + 3) {
@@ -500,8 +630,8 @@ public class Phase2 {
 
         // processparents here too
         for (ObjectRep rep : filled) {
-            if (rep.parent != null && rep.parent.equals(filled.get(0))) childrenToParents.put(rep.name, "");
-            else if (rep.parent != null) childrenToParents.put(rep.name, rep.parent.name);
+            if (rep.parent != null && rep.parent.equals(filled.get(0))) hierarchy.childrenToParents.put(rep.name, "");
+            else if (rep.parent != null) hierarchy.childrenToParents.put(rep.name, rep.parent.name);
         }
 
         return filled;
@@ -623,7 +753,7 @@ public class Phase2 {
         ArrayList<VMethod> vMethods = current.vtable.methods;
 
         // new array list to dump fields into as they are processed
-        ArrayList<Method> updatedMethods = new ArrayList<Method>();
+        ArrayList<Method> updatedMethods = new ArrayList<Method>(methods.size());
         HashSet<String> updatedMethodNames = new HashSet<String>();
         // remove index 0 and add to updatedMethods at the very end
         Method last = methods.get(0);
@@ -690,17 +820,18 @@ public class Phase2 {
         ArrayList<Field> currentFields = current.classRep.fields;
 
         // new array list to dump fields into as they are processed
-        ArrayList<Field> updatedFields = new ArrayList<Field>();
+        ArrayList<Field> updatedFields = new ArrayList<Field>(parentFields.size() + currentFields.size());
         HashSet<String> updatedFieldNames = new HashSet<String>();
-        updatedFields.add(currentFields.get(0));
-        currentFields.remove(0);
+        // __vptr and __rc lead every layout, __vtable goes last
+        updatedFields.add(currentFields.remove(0));
+        updatedFields.add(currentFields.remove(0));
         Field last = currentFields.get(0);
         currentFields.remove(0);
 
         // process parent fields and inherit valid fields
         for (Field parentField : parentFields) {
-            // if field is static it can't be inherited, furthermore don't inherit the vptr and the vtable
-            if (parentField.isStatic == false && !parentField.fieldName.equals("__vptr") && !parentField.fieldName.equals("__vtable")) {
+            // if field is static it can't be inherited, furthermore don't inherit the vptr, the refcount and the vtable
+            if (parentField.isStatic == false && !parentField.fieldName.equals("__vptr") && !parentField.fieldName.equals("__rc") && !parentField.fieldName.equals("__vtable")) {
                 updatedFields.add(parentField);
                 updatedFieldNames.add(parentField.fieldName);
             }
@@ -757,8 +888,9 @@ public class Phase2 {
 
         VMethod __is_a = current.vtable.methods.get(0);
 
-        ArrayList<Field> updatedFields = new ArrayList<Field>();
-        ArrayList<VMethod> updatedVMethods = new ArrayList<VMethod>();
+        // the child's vtable holds at least every parent entry plus its own methods
+        ArrayList<Field> updatedFields = new ArrayList<Field>(parentFields.size() + currentMethods.size());
+        ArrayList<VMethod> updatedVMethods = new ArrayList<VMethod>(parentFields.size() + currentMethods.size());
 
         // determine method declarations dependent on parent declarations (overwritten or not)
         for (Field parentField : parentFields) {
@@ -767,7 +899,7 @@ public class Phase2 {
             // loop over current methods to determine what has been overwritten and what hasn't, this will ensure preservation of order too
             for (Method currentMethod : currentMethods) {
                 // if method is overwritten by child, need extra processing, ignore class definition
-                if (checkTwoNames(parentField.fieldName, currentMethod.name) && parentField.isStatic == false && !parentField.accessModifier.equals("private")) {
+                if (checkTwoNames(parentField.fieldName, currentMethod.name) && parentField.isStatic == false && parentField.accessModifier != Modifier.PRIVATE) {
                     // process parameters correctly into field declaration
                     String parameters = "";
                     ArrayList<Parameter> params = currentMethod.parameters;
@@ -787,10 +919,10 @@ public class Phase2 {
                 }
             }
             // if method wasn't overwritten and is not class (which is initialized in ObjectRep creation), modify its args and simply add to updated_fields list, also add inheritnce to updated vMethods list (these will refer to Object)
-            if (notUpdated && parentField.isStatic == false && !parentField.accessModifier.equals("private")) {
+            if (notUpdated && parentField.isStatic == false && parentField.accessModifier != Modifier.PRIVATE) {
                 if (parentField.fieldName.equals("*__delete")) {
-                    updatedFields.add(new Field("public", false, "void", "*__delete", "__" + current.name + "*"));
-                    updatedVMethods.add(new VMethod("public", false, "__delete", "(&__rt::__delete<__" + current.name + ">)"));
+                    updatedFields.add(new Field(Modifier.PUBLIC, false, "void", "*__delete", "__" + current.name + "*"));
+                    updatedVMethods.add(new VMethod(Modifier.PUBLIC, false, "__delete", "(&__rt::__delete<__" + current.name + ">)"));
                 } else {
                     String inheritedFrom = "";
                     if (parentField.inheritedFrom.equals("")) inheritedFrom = "Object";
@@ -814,7 +946,7 @@ public class Phase2 {
         // dump rest of methods in current_methods into updated_fields and set precedent for order + preserve order
         for (Method currentMethod : currentMethods) {
             // if not already declared, declare it now, also ignore private methods since they do not get vtable entries, also ignore static methods since they do not get vtable entries too
-            if (!updatedFieldSet.contains(currentMethod.name) && !currentMethod.accessModifier.equals("private") && currentMethod.isStatic == false) {
+            if (!updatedFieldSet.contains(currentMethod.name) && currentMethod.accessModifier != Modifier.PRIVATE && currentMethod.isStatic == false) {
                 // process parameters correctly into field declaration
                 String parameters = "";
                 ArrayList<Parameter> params = currentMethod.parameters;
@@ -858,13 +990,40 @@ public class Phase2 {
     }
 
     /**
-     * Initializes ObjectReps for Object, String and Class layout and structures
-     * manually with hard coding, Object is necessary and String and Class are
-     * hardcoded just in case they may be needed in the future
+     * Initializes an ObjectRepList holding the shared Object, String and Class
+     * layouts, the list itself is fresh so callers may add to it but the reps
+     * in it are the prelude and must never be modified, subclasses derive
+     * their own vtable and field lists from them instead
      *
      * @return filled ObjectRepList with Object, String and Class hard coded
      */
     public static ObjectRepList initializeRepList() {
+        ObjectRepList filled = new ObjectRepList();
+        filled.addAll(PRELUDE);
+        return filled;
+    }
+
+    /**
+     * Checks whether rep is one of the shared java.lang layouts
+     *
+     * @param rep ObjectRep to check
+     *
+     * @return true if rep belongs to the prelude, false o/w
+     */
+    public static boolean isPrelude(ObjectRep rep) {
+        for (ObjectRep preludeRep : PRELUDE) if (preludeRep == rep) return true;
+        return false;
+    }
+
+    /**
+     * Builds ObjectReps for Object, String and Class layout and structures
+     * manually with hard coding, Object is necessary and String and Class are
+     * hardcoded just in case they may be needed in the future, this runs once
+     * and the result is shared by every call to runPhase2
+     *
+     * @return filled ObjectRepList with Object, String and Class hard coded
+     */
+    private static ObjectRepList buildPrelude() {
 
         ObjectRepList filled = new ObjectRepList();
 
@@ -872,36 +1031,36 @@ public class Phase2 {
         ObjectRep objectRep = new ObjectRep("Object");
         ArrayList<Parameter> params = new ArrayList<Parameter>();
         params.add(new Parameter("Object", "o"));
-        Method hashCode = new Method("public", true, "int32_t", "hashCode", params);
+        Method hashCode = new Method(Modifier.PUBLIC, true, "int32_t", "hashCode", params);
         objectRep.classRep.methods.add(hashCode);
         params.add(new Parameter("Object", "o"));
-        Method equals = new Method("public", true, "bool", "equals", params);
+        Method equals = new Method(Modifier.PUBLIC, true, "bool", "equals", params);
         objectRep.classRep.methods.add(equals);
         params.remove(1);
-        Method getClass = new Method("public", true, "Class", "getClass", params);
+        Method getClass = new Method(Modifier.PUBLIC, true, "Class", "getClass", params);
         objectRep.classRep.methods.add(getClass);
-        Method toString = new Method("public", true, "String", "toString", params);
+        Method toString = new Method(Modifier.PUBLIC, true, "String", "toString", params);
         objectRep.classRep.methods.add(toString);
         // class representation for Object filled, now do V-Table filling
-        Field v_delete = new Field("public", false, "void", "*__delete", "__Object*");
+        Field v_delete = new Field(Modifier.PUBLIC, false, "void", "*__delete", "__Object*");
         objectRep.vtable.fields.add(v_delete);
-        Field v_hashCode = new Field("public", false, "int32_t", "*hashCode", "Object");
+        Field v_hashCode = new Field(Modifier.PUBLIC, false, "int32_t", "*hashCode", "Object");
         objectRep.vtable.fields.add(v_hashCode);
-        Field v_equals = new Field("public", false, "bool", "*equals", "Object, Object");
+        Field v_equals = new Field(Modifier.PUBLIC, false, "bool", "*equals", "Object, Object");
         objectRep.vtable.fields.add(v_equals);
-        Field v_getClass = new Field("public", false, "Class", "*getClass", "Object");
+        Field v_getClass = new Field(Modifier.PUBLIC, false, "Class", "*getClass", "Object");
         objectRep.vtable.fields.add(v_getClass);
-        Field v_toString = new Field("public", false, "String", "*toString", "Object");
+        Field v_toString = new Field(Modifier.PUBLIC, false, "String", "*toString", "Object");
         objectRep.vtable.fields.add(v_toString);
-        VMethod v_method_delete = new VMethod("public", false, "__delete", "(&__rt::__delete<__Object>)");
+        VMethod v_method_delete = new VMethod(Modifier.PUBLIC, false, "__delete", "(&__rt::__delete<__Object>)");
         objectRep.vtable.methods.add(v_method_delete);
-        VMethod v_method_hashCode = new VMethod("public", false, "hashCode", "(&__Object::__hashCode)");
+        VMethod v_method_hashCode = new VMethod(Modifier.PUBLIC, false, "hashCode", "(&__Object::__hashCode)");
         objectRep.vtable.methods.add(v_method_hashCode);
-        VMethod v_method_equals = new VMethod("public", false, "equals", "(&__Object::__equals)");
+        VMethod v_method_equals = new VMethod(Modifier.PUBLIC, false, "equals", "(&__Object::__equals)");
         objectRep.vtable.methods.add(v_method_equals);
-        VMethod v_method_getClass = new VMethod("public", false, "getClass", "(&__Object::__getClass)");
+        VMethod v_method_getClass = new VMethod(Modifier.PUBLIC, false, "getClass", "(&__Object::__getClass)");
         objectRep.vtable.methods.add(v_method_getClass);
-        VMethod v_method_toString = new VMethod("public", false, "toString", "(&__Object::__toString)");
+        VMethod v_method_toString = new VMethod(Modifier.PUBLIC, false, "toString", "(&__Object::__toString)");
         objectRep.vtable.methods.add(v_method_toString);
         // set parent to null
         objectRep.parent = null;
@@ -910,52 +1069,54 @@ public class Phase2 {
 
         // Adding java.lang structure manually for String
         ObjectRep stringRep = new ObjectRep("String");
-        Field data = new Field("public", false, "std::string", "data", "");
+        Field data = new Field(Modifier.PUBLIC, false, "std::string", "data", "");
         stringRep.classRep.fields.add(data);
+        Field hash = new Field(Modifier.PUBLIC, false, "int32_t", "hash", "");
+        stringRep.classRep.fields.add(hash);
         params = new ArrayList<Parameter>();
         params.add(new Parameter("std::string", "data"));
-        Constructor stringConstructor = new Constructor("public", "__String", params);
+        Constructor stringConstructor = new Constructor(Modifier.PUBLIC, "__String", params);
         stringRep.classRep.constructors.remove(0);
         stringRep.classRep.constructors.add(stringConstructor);
         params = new ArrayList<Parameter>();
         params.add(new Parameter("String", "str"));
-        hashCode = new Method("public", true, "int32_t", "hashCode", params);
+        hashCode = new Method(Modifier.PUBLIC, true, "int32_t", "hashCode", params);
         stringRep.classRep.methods.add(hashCode);
         params.add(new Parameter("Object", "o"));
-        equals = new Method("public", true, "bool", "equals", params);
+        equals = new Method(Modifier.PUBLIC, true, "bool", "equals", params);
         stringRep.classRep.methods.add(equals);
         params.remove(1);
-        toString = new Method("public", true, "int32_t", "length", params);
+        toString = new Method(Modifier.PUBLIC, true, "int32_t", "length", params);
         stringRep.classRep.methods.add(toString);
         params.add(new Parameter("int32_t", "int_length"));
-        Method charAt = new Method("public", true, "char", "charAt", params);
+        Method charAt = new Method(Modifier.PUBLIC, true, "char", "charAt", params);
         stringRep.classRep.methods.add(charAt);
         // class representation for String filled, now do V-Table filling
-        v_delete = new Field("public", false, "void", "*__delete", "__String*");
+        v_delete = new Field(Modifier.PUBLIC, false, "void", "*__delete", "__String*");
         stringRep.vtable.fields.add(v_delete);
-        v_hashCode = new Field("public", false, "int32_t", "*hashCode", "String");
+        v_hashCode = new Field(Modifier.PUBLIC, false, "int32_t", "*hashCode", "String");
         stringRep.vtable.fields.add(v_hashCode);
-        v_equals = new Field("public", false, "bool", "*equals", "String, Object");
+        v_equals = new Field(Modifier.PUBLIC, false, "bool", "*equals", "String, Object");
         stringRep.vtable.fields.add(v_equals);
-        v_getClass = new Field("public", false, "Class", "*getClass", "String");
+        v_getClass = new Field(Modifier.PUBLIC, false, "Class", "*getClass", "String");
         stringRep.vtable.fields.add(v_getClass);
-        v_toString = new Field("public", false, "String", "*toString", "String");
+        v_toString = new Field(Modifier.PUBLIC, false, "String", "*toString", "String");
         stringRep.vtable.fields.add(v_toString);
-        Field v_length = new Field("public", false, "int32_t", "*length", "String");
+        Field v_length = new Field(Modifier.PUBLIC, false, "int32_t", "*length", "String");
         stringRep.vtable.fields.add(v_length);
-        Field v_charAt = new Field("public", false, "char", "*charAt", "String");
+        Field v_charAt = new Field(Modifier.PUBLIC, false, "char", "*charAt", "String");
         stringRep.vtable.fields.add(v_charAt);
-        v_method_delete = new VMethod("public", false, "__delete", "(&__rt::__delete<__String>)");
+        v_method_delete = new VMethod(Modifier.PUBLIC, false, "__delete", "(&__rt::__delete<__String>)");
         stringRep.vtable.methods.add(v_method_delete);
-        v_method_hashCode = new VMethod("public", false, "hashCode", "(&__String::__hashCode())");
+        v_method_hashCode = new VMethod(Modifier.PUBLIC, false, "hashCode", "(&__String::__hashCode())");
         stringRep.vtable.methods.add(v_method_hashCode);
-        v_method_equals = new VMethod("public", false, "equals", "(&__String::equals)");
+        v_method_equals = new VMethod(Modifier.PUBLIC, false, "equals", "(&__String::equals)");
         stringRep.vtable.methods.add(v_method_equals);
-        v_method_getClass = new VMethod("public", false, "getClass", "((Class(*)(String)) &__Object::getClass");
+        v_method_getClass = new VMethod(Modifier.PUBLIC, false, "getClass", "((Class(*)(String)) &__Object::getClass");
         stringRep.vtable.methods.add(v_method_getClass);
-        v_method_toString = new VMethod("public", false, "toString", "(&__toString::toString)");
+        v_method_toString = new VMethod(Modifier.PUBLIC, false, "toString", "(&__toString::toString)");
         stringRep.vtable.methods.add(v_method_toString);
-        VMethod v_method_charAt = new VMethod("public", false, "charAt", "(&__String::charAt)");
+        VMethod v_method_charAt = new VMethod(Modifier.PUBLIC, false, "charAt", "(&__String::charAt)");
         stringRep.vtable.methods.add(v_method_charAt);
         // set parent to Object
         stringRep.parent = objectRep;
@@ -964,59 +1125,59 @@ public class Phase2 {
 
         // Adding java.lang structure manually for Class
         ObjectRep classRep = new ObjectRep("Class");
-        Field name = new Field("public", false, "String", "name", "");
+        Field name = new Field(Modifier.PUBLIC, false, "String", "name", "");
         classRep.classRep.fields.add(name);
-        Field parent = new Field("public", false, "Class", "parent", "");
+        Field parent = new Field(Modifier.PUBLIC, false, "Class", "parent", "");
         classRep.classRep.fields.add(parent);
         params = new ArrayList<Parameter>();
         params.add(new Parameter("String", "name"));
         params.add(new Parameter("Class", "parent"));
-        Constructor classConstructor = new Constructor("public", "__Class", params);
+        Constructor classConstructor = new Constructor(Modifier.PUBLIC, "__Class", params);
         classRep.classRep.constructors.remove(0);
         classRep.classRep.constructors.add(classConstructor);
         params = new ArrayList<Parameter>();
         params.add(new Parameter("Class", "c"));
-        toString = new Method("public", true, "String", "toString", params);
+        toString = new Method(Modifier.PUBLIC, true, "String", "toString", params);
         classRep.classRep.methods.add(toString);
-        Method getName = new Method("public", true, "String", "getName", params);
+        Method getName = new Method(Modifier.PUBLIC, true, "String", "getName", params);
         classRep.classRep.methods.add(getName);
-        Method getSuperClass = new Method("public", true, "Class", "getSuperclass", params);
+        Method getSuperClass = new Method(Modifier.PUBLIC, true, "Class", "getSuperclass", params);
         classRep.classRep.methods.add(getSuperClass);
         params.add(new Parameter("Object", "o"));
-        Method isInstance = new Method("public", true, "bool", "isInstance", params);
+        Method isInstance = new Method(Modifier.PUBLIC, true, "bool", "isInstance", params);
         classRep.classRep.methods.add(isInstance);
         // class representation for Class filled, now do V-Table filling
-        v_delete = new Field("public", false, "void", "*__delete", "__Class*");
+        v_delete = new Field(Modifier.PUBLIC, false, "void", "*__delete", "__Class*");
         classRep.vtable.fields.add(v_delete);
-        v_hashCode = new Field("public", false, "int32_t", "*hashCode", "Class");
+        v_hashCode = new Field(Modifier.PUBLIC, false, "int32_t", "*hashCode", "Class");
         classRep.vtable.fields.add(v_hashCode);
-        v_equals = new Field("public", false, "bool", "*equals", "Class, Object");
+        v_equals = new Field(Modifier.PUBLIC, false, "bool", "*equals", "Class, Object");
         classRep.vtable.fields.add(v_equals);
-        v_getClass = new Field("public", false, "Class", "*getClass", "Class");
+        v_getClass = new Field(Modifier.PUBLIC, false, "Class", "*getClass", "Class");
         classRep.vtable.fields.add(v_getClass);
-        v_toString = new Field("public", false, "String", "*toString", "Class");
+        v_toString = new Field(Modifier.PUBLIC, false, "String", "*toString", "Class");
         classRep.vtable.fields.add(v_toString);
-        Field v_getName = new Field("public", false, "String", "*getName", "Class");
+        Field v_getName = new Field(Modifier.PUBLIC, false, "String", "*getName", "Class");
         classRep.vtable.fields.add(v_getName);
-        Field v_getSuperClass = new Field("public", false, "String", "*getSuperclass", "Class");
+        Field v_getSuperClass = new Field(Modifier.PUBLIC, false, "String", "*getSuperclass", "Class");
         classRep.vtable.fields.add(v_getSuperClass);
-        Field v_isInstance = new Field("public", false, "String", "*isInstance", "Class");
+        Field v_isInstance = new Field(Modifier.PUBLIC, false, "String", "*isInstance", "Class");
         classRep.vtable.fields.add(v_isInstance);
-        v_method_delete = new VMethod("public", false, "__delete", "(&__rt::__delete<__Class>)");
+        v_method_delete = new VMethod(Modifier.PUBLIC, false, "__delete", "(&__rt::__delete<__Class>)");
         classRep.vtable.methods.add(v_method_delete);
-        v_method_hashCode = new VMethod("public", false, "hashCode", "((int32_t(*)(Class)) &__Object::hashCode)");
+        v_method_hashCode = new VMethod(Modifier.PUBLIC, false, "hashCode", "((int32_t(*)(Class)) &__Object::hashCode)");
         classRep.vtable.methods.add(v_method_hashCode);
-        v_method_equals = new VMethod("public", false, "equals", "((bool(*)(Class,Object)) &__Object::equals)");
+        v_method_equals = new VMethod(Modifier.PUBLIC, false, "equals", "((bool(*)(Class,Object)) &__Object::equals)");
         classRep.vtable.methods.add(v_method_equals);
-        v_method_getClass = new VMethod("public", false, "getClass", "((Class(*)(Class)) &__Object::getClass)");
+        v_method_getClass = new VMethod(Modifier.PUBLIC, false, "getClass", "((Class(*)(Class)) &__Object::getClass)");
         classRep.vtable.methods.add(v_method_getClass);
-        v_method_toString = new VMethod("public", false, "toString", "(&__Class::toString)");
+        v_method_toString = new VMethod(Modifier.PUBLIC, false, "toString", "(&__Class::toString)");
         classRep.vtable.methods.add(v_method_toString);
-        VMethod v_method_getName = new VMethod("public", false, "getName", "(&__Class::getName)");
+        VMethod v_method_getName = new VMethod(Modifier.PUBLIC, false, "getName", "(&__Class::getName)");
         classRep.vtable.methods.add(v_method_getName);
-        VMethod v_method_getSuperClass = new VMethod("public", false, "getSuperclass", "(&__Class::getSuperclass)");
+        VMethod v_method_getSuperClass = new VMethod(Modifier.PUBLIC, false, "getSuperclass", "(&__Class::getSuperclass)");
         classRep.vtable.methods.add(v_method_getSuperClass);
-        VMethod v_method_isInstance = new VMethod("public", false, "isInstance", "(&__Class::isInstance)");
+        VMethod v_method_isInstance = new VMethod(Modifier.PUBLIC, false, "isInstance", "(&__Class::isInstance)");
         classRep.vtable.methods.add(v_method_isInstance);
         // set parent to object
         classRep.parent = objectRep;
@@ -1088,8 +1249,11 @@ public class Phase2 {
         Node vFieldDeclaration = GNode.create("VFieldDeclaration");
         Node vTable = buildVTableNode(rep.name, rep.vtable.fields, rep.vtable.methods);
 
+        // allocation through the runtime, so the runtime decides where objects live (see -arena)
+        Node allocatorDeclaration = GNode.create("AllocatorDeclaration");
+
         // data layout node
-        Node dataLayout = GNode.create("DataLayout",fields, constructors, methods, vFieldDeclaration);
+        Node dataLayout = GNode.create("DataLayout",fields, constructors, methods, vFieldDeclaration, allocatorDeclaration);
 
         // return class declaration
         return GNode.create("ClassDeclaration", "__" + rep.name, dataLayout, vTable);
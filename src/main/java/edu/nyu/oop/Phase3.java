@@ -132,6 +132,7 @@ public class Phase3 extends Visitor {
     }
 
     public void visitDataLayout(GNode node) {
+        references.clear();
         datalayout = "struct " + className+ " {";
         printer.indent().pln("struct " + className+ " {");
         printer.pln();
@@ -141,6 +142,9 @@ public class Phase3 extends Visitor {
 
     }
 
+    // the instance fields of the current layout holding references, see printTrace
+    ArrayList<String> references = new ArrayList<String>();
+
     String modifier2;
     String VTName;
     public void visitFieldDeclarations(GNode node) {
@@ -151,6 +155,7 @@ public class Phase3 extends Visitor {
             else modifier2 = "";
             if (node.getNode(i).getNode(1).getString(0).equals(VTName) && node.getNode(i).getNode(2).getString(0).equals("__vtable")) continue;
             printer.indent().pln(modifier2 + node.getNode(i).getNode(1).getString(0) + " " + node.getNode(i).getNode(2).getString(0) + ";");
+            if (modifier2.isEmpty() && isReference(node.getNode(i).getNode(1).getString(0))) references.add(node.getNode(i).getNode(2).getString(0));
             fieldDeclarations.add(modifier2 + node.getNode(i).getNode(1).getString(0) + " " + node.getNode(i).getNode(2).getString(0) + ";");
         }
         printer.pln();
@@ -193,6 +198,50 @@ public class Phase3 extends Visitor {
         visit(node);
     }
 
+    public void visitAllocatorDeclaration(GNode node) {
+        printer.pln();
+        printer.indent().pln("static void* operator new(size_t size) {");
+        printer.indent().pln("  return __rt::allocate<" + className + ">(size);");
+        printer.indent().pln("}");
+        printer.pln();
+        printer.indent().pln("static void operator delete(void* addr) {");
+        printer.indent().pln("  __rt::deallocate<" + className + ">(addr);");
+        printer.indent().pln("}");
+        printTrace();
+        visit(node);
+    }
+
+    /** Prints how the cycle collector finds the references of an instance, see __rt::Trace. */
+    public void printTrace() {
+        printer.pln();
+        if (references.isEmpty()) {
+            printer.indent().pln("static void __trace(__Object*, __rt::Visit) {");
+        } else {
+            printer.indent().pln("static void __trace(__Object* __object, __rt::Visit __visit) {");
+            printer.indent().pln("  " + className + "* __this = (" + className + "*) __object;");
+            for (String field : references) printer.indent().pln("  __rt::trace(__this->" + field + ", __visit);");
+        }
+        printer.indent().pln("}");
+    }
+
+    /** Whether a field of the given C++ type is a counted reference, anything but a primitive or the header. */
+    public boolean isReference(String type) {
+        switch (type) {
+        case "int64_t":
+        case "int32_t":
+        case "int16_t":
+        case "int8_t":
+        case "bool":
+        case "char":
+        case "float":
+        case "double":
+        case "__rt::RefCount":
+            return false;
+        default:
+            return !type.endsWith("*");
+        }
+    }
+
     public void visitVTableLayout(GNode node) {
         printer.indent().pln("struct " + node.getString(0) + "_VT {");
         printer.pln();
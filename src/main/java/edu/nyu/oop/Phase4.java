@@ -22,12 +22,18 @@ import xtc.type.*;
 import xtc.util.SymbolTable;
 import xtc.util.Runtime;
 
+import edu.nyu.oop.util.BoundsCheck;
+import edu.nyu.oop.util.ContiguousArrays;
+import edu.nyu.oop.util.EscapeCheck;
 import edu.nyu.oop.util.NodeUtil;
+import edu.nyu.oop.util.StoreCheck;
 import edu.nyu.oop.util.SymbolTableBuilder;
 import edu.nyu.oop.util.SymbolTableUtil;
+import edu.nyu.oop.util.TypeUtil;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.Stack;
@@ -37,6 +43,8 @@ public class Phase4 {
 
     private Runtime runtime;
     private HashMap<String, String> childrenToParents = new HashMap<String, String>();
+    private HashMap<String, HashMap<String, String>> vtableTargets = new HashMap<String, HashMap<String, String>>();
+    private HashMap<String, HashMap<String, Set<String>>> thisCalls = new HashMap<String, HashMap<String, Set<String>>>();
     private HashMap<String, ArrayList<Phase1.Initializer>> inits = new HashMap<String, ArrayList<Phase1.Initializer>>();
     private HashMap<String, ArrayList<Phase1.Initializer>> formerInits = new HashMap<String, ArrayList<Phase1.Initializer>>();
 
@@ -48,7 +56,27 @@ public class Phase4 {
     }
 
     public Phase4(Runtime runtime, HashMap<String, String> childrenToParents, HashMap<String, ArrayList<Phase1.Initializer>> inits) {
+        this(runtime, childrenToParents, new HashMap<String, HashMap<String, String>>(), inits);
+    }
+
+    /**
+     * @param vtableTargets every class's vtable methods mapped to the class defining them, see Phase2.Hierarchy,
+     *                      virtual calls which can only reach one definition are called directly
+     */
+    public Phase4(Runtime runtime, HashMap<String, String> childrenToParents, HashMap<String, HashMap<String, String>> vtableTargets,
+                  HashMap<String, ArrayList<Phase1.Initializer>> inits) {
+        this(runtime, childrenToParents, vtableTargets, new HashMap<String, HashMap<String, Set<String>>>(), inits);
+    }
+
+    /**
+     * @param thisCalls every class's methods mapped to what they do with `this`, see Phase2.Hierarchy,
+     *                  objects which can't outlive the method allocating them are put in its frame
+     */
+    public Phase4(Runtime runtime, HashMap<String, String> childrenToParents, HashMap<String, HashMap<String, String>> vtableTargets,
+                  HashMap<String, HashMap<String, Set<String>>> thisCalls, HashMap<String, ArrayList<Phase1.Initializer>> inits) {
         this.runtime = runtime;
+        this.vtableTargets = vtableTargets;
+        this.thisCalls = thisCalls;
         this.childrenToParents = childrenToParents;
         this.inits = inits;
 
@@ -132,7 +160,7 @@ public class Phase4 {
             if (o instanceof Node) {
 
                 SymbolTable table = new SymbolTableBuilder(runtime).getTable((GNode) o);
-                Phase4Visitor visitor = new Phase4Visitor(table, runtime, formerInits, childrenToParents, inits);
+                Phase4Visitor visitor = new Phase4Visitor(table, runtime, formerInits, childrenToParents, vtableTargets, thisCalls, inits);
                 visitor.traverse((Node) o);
 
                 String info = "";
@@ -152,7 +180,7 @@ public class Phase4 {
     public Node runNode(Node n, SymbolTable table) {
 
         //run the visitor
-        Phase4Visitor visitor = new Phase4Visitor(table, runtime, formerInits, childrenToParents, inits);
+        Phase4Visitor visitor = new Phase4Visitor(table, runtime, formerInits, childrenToParents, vtableTargets, thisCalls, inits);
         visitor.traverse(n);
 
         //add primitive array info
@@ -182,9 +210,12 @@ public class Phase4 {
         private String packageInfo = "";
         private boolean constructorFlag = false;
         private HashMap<String, String> ctp;
+        private HashMap<String, HashMap<String, String>> vtableTargets;
+        private HashMap<String, HashMap<String, Set<String>>> thisCalls;
         private HashMap<String, ArrayList<Phase1.Initializer>> completedInits;
         private HashMap<String, ArrayList<Phase1.Initializer>> formerInits;        
         private boolean defaultConstructorNeeded = false;
+        private HashMap<String, String> exactArrays = new HashMap<String, String>();
 
         private SymbolTable table;
 
@@ -192,10 +223,13 @@ public class Phase4 {
         public ArrayList<PrimitiveArray> primitiveArrays = new ArrayList<PrimitiveArray>();
 
         public Phase4Visitor(SymbolTable table, Runtime runtime, HashMap<String, ArrayList<Phase1.Initializer>> formerInits,
-            HashMap<String, String> ctp, HashMap<String, ArrayList<Phase1.Initializer>> completedInits) {
+            HashMap<String, String> ctp, HashMap<String, HashMap<String, String>> vtableTargets,
+            HashMap<String, HashMap<String, Set<String>>> thisCalls, HashMap<String, ArrayList<Phase1.Initializer>> completedInits) {
             this.table = table;
             this.runtime = runtime;
             this.ctp = ctp;
+            this.vtableTargets = vtableTargets;
+            this.thisCalls = thisCalls;
             this.completedInits = completedInits;
             this.formerInits = formerInits;
         }
@@ -249,6 +283,199 @@ public class Phase4 {
         }
 
         /** 
+         * Helper method: copyHeapArguments
+         * A call to a static method or constructor may bind its arguments
+         * to borrowed const references, a field or array element read would
+         * then alias the slot itself, which the callee could overwrite and
+         * free, so such arguments are marked to be passed as a copy instead
+         * 
+         * @param arguments the Arguments node of the call
+         */
+        public void copyHeapArguments(GNode arguments) {
+            for (Object o : arguments) {
+                if (o instanceof GNode && isHeapSlot((GNode) o)) {
+                    ((GNode) o).setProperty("borrowCopy", true);
+                }
+            }
+        }
+
+        /**
+         * Helper method: isHeapSlot
+         * Whether an expression reads a field, a static or an array element,
+         * anything but a local, a parameter or a temporary
+         *
+         * @param  n the expression
+         *
+         * @return true if the expression names a slot on the heap
+         */
+        public boolean isHeapSlot(GNode n) {
+            if (n.hasName("SelectionExpression") || n.hasName("SubscriptExpression")) return true;
+            if (!n.hasName("PrimaryIdentifier")) return false;
+
+            String name = n.getString(0);
+            if (name.startsWith("__this -> ")) return true;
+            Object symbol = table.current().lookup(name);
+            return symbol instanceof Type && JavaEntities.isFieldT((Type) symbol);
+        }
+
+        /**
+         * Helper method: monomorphicTarget
+         * Class hierarchy analysis, a virtual call on a receiver of the
+         * given static type can only reach one definition when neither the
+         * type nor any of its subclasses overrides the one it inherits
+         *
+         * @param  staticType simple name of the receiver's static type
+         * @param  method mangled name of the method called
+         *
+         * @return name of the class defining the only reachable method, null if the call has to be dispatched
+         */
+        public String monomorphicTarget(String staticType, String method) {
+            HashMap<String, String> targets = vtableTargets.get(staticType);
+            if (targets == null || targets.get(method) == null) return null;
+            String target = targets.get(method);
+
+            // any subclass of the static type must dispatch to the same definition
+            for (String sub : vtableTargets.keySet()) {
+                if (target.equals(vtableTargets.get(sub).get(method))) continue;
+                for (String c = sub; c != null && !c.equals(""); c = ctp.get(c)) {
+                    if (c.equals(staticType)) return null;
+                }
+            }
+            return target;
+        }
+
+        /**
+         * Helper method: isSafeStore
+         * A store into a reference array needs no checkStore when the value
+         * is null, when the declared component class has no subclasses so
+         * the array can't be of a narrower type, or when the array is a
+         * local allocated with an exact component class which the value's
+         * static type is a subclass of
+         *
+         * @param  array the array stored into
+         * @param  value the value stored
+         *
+         * @return true if the store can't throw an ArrayStoreException
+         */
+        public boolean isSafeStore(Node array, Node value) {
+            if (value.hasName("NullLiteral")) return true;
+            if (!array.hasName("PrimaryIdentifier")) return false;
+
+            Type type = (Type) table.current().lookup(array.getString(0));
+            if (type == null) return false;
+
+            Type arrayType = type instanceof VariableT ? ((VariableT) type).getType() : type;
+            if (arrayType.isAnnotated()) arrayType = arrayType.deannotate();
+            if (!arrayType.tag().toString().equals("ARRAY")) return false;
+
+            String component = className(arrayType.toArray().getType());
+            if (component != null && (component.equals("String") || (ctp.containsKey(component) && !ctp.containsValue(component)))) {
+                return true;
+            }
+
+            String exact = exactArrays.get(array.getString(0));
+            String stored = null;
+            if (value.hasName("NewClassExpression")) stored = className(value.getNode(2));
+            else if (value.hasName("PrimaryIdentifier") && table.current().lookup(value.getString(0)) instanceof VariableT) {
+                stored = className(((VariableT) table.current().lookup(value.getString(0))).getType());
+            }
+            if (exact == null || stored == null || !JavaEntities.isLocalT(type)) return false;
+
+            // the value's class must be the array's component class or below it
+            if (exact.equals("Object")) return true;
+            for (String c = stored; c != null && !c.equals(""); c = ctp.get(c)) {
+                if (c.equals(exact)) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Helper method: leaksThis
+         * Whether calling the given method on an object of exactly the
+         * given class may let `this` escape, following the calls the
+         * method makes on `this` in turn, a method of unknown body leaks
+         *
+         * @param  exact simple name of the object's class
+         * @param  method mangled name of the method, "<init>" for construction
+         * @param  seen methods already followed
+         *
+         * @return true if the object may outlive the call
+         */
+        public boolean leaksThis(String exact, String method, Set<String> seen) {
+            if (!seen.add(method)) return false;
+
+            // a virtual call on the object reaches one definition, others are looked up along the hierarchy
+            ArrayList<String> owners = new ArrayList<String>();
+            HashMap<String, String> targets = vtableTargets.get(exact);
+            if (targets != null && targets.get(method) != null) owners.add(targets.get(method));
+            else {
+                for (String c = exact; c != null && !c.equals(""); c = ctp.get(c)) {
+                    if (thisCalls.containsKey(c) && thisCalls.get(c).containsKey(method)) owners.add(c);
+                }
+            }
+            if (owners.isEmpty()) return true;
+
+            for (String owner : owners) {
+                // java.lang.Object's methods never keep their receiver
+                if (owner.equals("Object")) continue;
+                HashMap<String, Set<String>> methods = thisCalls.get(owner);
+                if (methods == null || !methods.containsKey(method) || methods.get(method) == null) return true;
+                for (String callee : methods.get(method)) {
+                    if (leaksThis(exact, callee, seen)) return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Helper method: allocateOnStack
+         * Gives every object of the method which can't outlive it a slot
+         * in the method's frame, the local's declaration is marked with
+         * the slot to declare before it and the allocation with the slot
+         * to construct in
+         *
+         * @param method a MethodDeclaration node before lowering
+         */
+        public void allocateOnStack(GNode method) {
+            for (EscapeCheck.Allocation a : EscapeCheck.confinedAllocations(method)) {
+                if (!thisCalls.containsKey(a.className) || leaksThis(a.className, "<init>", new HashSet<String>())) continue;
+
+                boolean leaks = false;
+                for (String call : a.calls) leaks |= leaksThis(a.className, call, new HashSet<String>());
+                if (leaks) continue;
+
+                String slot = "__stack_" + a.declaration.getNode(2).getNode(0).getString(0);
+                a.declaration.setProperty("stackSlot", "__" + a.className + " " + slot);
+                a.allocation.setProperty("stackSlot", slot);
+            }
+        }
+
+        /**
+         * Helper method: className
+         *
+         * @param  o a class Type or QualifiedIdentifier node
+         *
+         * @return the simple name of the class, null if o is not a class
+         */
+        public String className(Object o) {
+            String name = null;
+            if (o instanceof Node && ((Node) o).hasName("QualifiedIdentifier")) {
+                Node n = (Node) o;
+                name = n.getString(n.size() - 1);
+            }
+            else if (o instanceof Type) {
+                Type t = (Type) o;
+                if (t.isAnnotated()) t = t.deannotate();
+                if (t.isAlias()) name = t.toAlias().getName();
+                else if (t.isClass()) name = t.toClass().getName();
+            }
+            if (name == null) return null;
+
+            String[] names = name.split("\\.");
+            return names[names.length - 1];
+        }
+
+        /**
          * Visitor for CompilationUnit
          * process package information and use symboltable
          * visit nodes for mutation
@@ -294,6 +521,45 @@ public class Phase4 {
             visit(n);
         }
 
+        /**
+         * Visitor for AdditiveExpression
+         * A string concatenation becomes a single ConcatExpression of all
+         * the operands of its chain, so "a" + x + "b" + y builds one string
+         * instead of one per +, a numeric prefix like the 1 + 2 of
+         * 1 + 2 + "a" stays a single operand
+         *
+         * @return the ConcatExpression replacing n, null if n is numeric
+         */
+        public Node visitAdditiveExpression(GNode n) {
+
+            // decided on the Java operands, lowering renames them
+            boolean concat = isString(n);
+            visit(n);
+            if (!concat) return null;
+
+            GNode parts = GNode.create("ConcatExpression");
+            Node left = n.getNode(0);
+            if (left.hasName("ConcatExpression")) {
+                for (Object o : left) parts.add(o);
+            }
+            else parts.add(left);
+            parts.add(n.get(2));
+            return parts;
+        }
+
+        /**
+         * Helper method: isString
+         *
+         * @param  n an expression before lowering
+         *
+         * @return true if the static type of n, as annotated by the JavaAnalyzer, is String
+         */
+        public boolean isString(Node n) {
+            Type type = TypeUtil.getType(n);
+            if (type != null && type.isVariable()) type = type.toVariable().getType();
+            return "String".equals(className(type));
+        }
+
         /** 
          * Visitor for Cast Expression
          * performs correct run-time casting check, therefore correct casts
@@ -352,10 +618,13 @@ public class Phase4 {
 
             // also determine information for getClass
             String classInfo = "";
-            classInfo += "Class __" + n.get(1).toString() + "::__class() {\n";
-            classInfo += "static Class k = new __Class(__rt::literal(\""
+            // the class is registered by the vtable's initializer, see __rt::registerClass
+            classInfo += "__Class* __" + n.get(1).toString() + "::__class() {\n";
+            classInfo += "static __Class* k;\n";
+            classInfo += "if (0 == k) k = __rt::registerClass(new __Class(__rt::literal(\""
                          + this.packageInfo + currentClass + "\"), __"
-                         + parentName + "::__class());\n";
+                         + parentName + "::__class(), __rt::null(), false, &__"
+                         + n.get(1).toString() + "::__trace));\n";
             classInfo += "return k;\n";
             classInfo += "}\n";
             n.setProperty("classInfo", classInfo);
@@ -371,8 +640,8 @@ public class Phase4 {
             if (defaultConstructorNeeded) {
                 String initCall = "";
                 initCall += currentClass + " __"
-                            + currentClass + "::__init("
-                            + currentClass + " __this) {\n";
+                            + currentClass + "::__init(const "
+                            + currentClass + "& __this) {\n";
 
                 // String parentName = "";
                 // if (extension == null) parentName = "Object";
@@ -426,6 +695,19 @@ public class Phase4 {
             table.mark(n);
 
             methodName = table.current().getName();
+
+            // the modifiers are gone once visited
+            boolean synchronizedMethod = false;
+            for (Object o : n.getNode(0)) {
+                if (((Node) o).getString(0).equals("synchronized")) synchronizedMethod = true;
+            }
+
+            // decided before lowering, the same way Phase 2 declared them
+            Set<String> borrowed = EscapeCheck.borrowedParameters(n);
+            exactArrays = StoreCheck.exactArrays(n);
+            allocateOnStack(n);
+            if (runtime.test("contiguousArrays")) ContiguousArrays.markContiguous(n);
+
             // process the mangled name correctly
             if (n.getProperty("mangledName") != null) n.set(3, n.getProperty("mangledName").toString().replace(" ", ""));
 
@@ -516,6 +798,21 @@ public class Phase4 {
                     for (int j = 0; j < oldParams.size(); j++) newParams.add(oldParams.get(j));
                     n.set(4, newParams);
                 }
+
+                // parameters that don't escape are passed borrowed
+                for (Object o : (GNode) n.get(4)) {
+                    GNode parameter = (GNode) o;
+                    if (borrowed.contains(parameter.getString(3))) {
+                        GNode type = (GNode) parameter.getNode(1).getNode(0);
+                        type.set(0, "const " + type.getString(0) + "&");
+                    }
+                }
+            }
+
+            // a synchronized method runs its body holding the monitor of its object, or of its class if static
+            if (synchronizedMethod && n.get(7) != null) {
+                String lock = NodeUtil.dfs(n, "StaticModifer") == null ? "__this" : "__" + currentClass + "::__class()";
+                n.set(7, GNode.create("Block", GNode.create("SynchronizedStatement", lock, n.getNode(7))));
             }
 
             // reset the method name and exit scope
@@ -614,6 +911,9 @@ public class Phase4 {
 
                     else
                     { 
+                        // the rows allocated at this level hold elements of the previous level's type
+                        String rowDef = typeDef;
+
                         //Type name recursive update
                         typeDef = "__rt::Array<" + typeDef + ">";
 
@@ -626,17 +926,28 @@ public class Phase4 {
                             initStatement += " -> __data[i" + j + "]";
                         } 
 
-                        initStatement += " = __rt::__Array<" + typeDef + ">::__init(new __rt::__Array<" 
-                            + typeDef + ">(__rt::checkNegativeIndex(" + concreteDimensions.getNode(i + 1).getString(0) + ")));\n";
+                        initStatement += " = __rt::__Array<" + rowDef + ">::__init(__rt::__Array<" 
+                            + rowDef + ">::__new(__rt::checkNegativeIndex(" + concreteDimensions.getNode(i + 1).getString(0) + ")));\n";
                         innerDef = forDef + initStatement + innerDef + "}\n";
                     }
                 }
 
+                //c++ array initialization, __new allocates a primitive array together with its elements
+                declaration = "__rt::__Array<" + typeDef + ">::__init(__rt::__Array<" + typeDef + ">::__new(__rt::checkNegativeIndex(" + length + ")))";
+
+                // a rectangular array whose rows never escape is allocated as one block, see ContiguousArrays
+                if (null != n.getProperty("Contiguous")) {
+                    String lengths = "";
+                    for (int i = 0; i < concreteDimensions.size(); i++) {
+                        if (i > 0) lengths += ", ";
+                        lengths += "__rt::checkNegativeIndex(" + concreteDimensions.getNode(i).getString(0) + ")";
+                    }
+                    innerDef = "";
+                    declaration = "__rt::__Array<" + typeDef + ">::__init(__rt::contiguous<" + typeDef + ">({" + lengths + "}))";
+                }
+
                 n.setProperty("InitSubArray", innerDef);
                 n.setProperty("ArrayType", "__rt::Array<" + typeDef + ">");
-
-                //c++ array initialization
-                declaration = "__rt::__Array<" + typeDef + ">::__init(new __rt::__Array<" + typeDef + ">(__rt::checkNegativeIndex(" + length + ")))";
             
             }
 
@@ -674,9 +985,11 @@ public class Phase4 {
                 Node oldArgs = n.getNode(3);
                 GNode newArgs = GNode.create("Arguments");
                 n.set(3, newArgs);
-                newArgs.add(GNode.create("Argument", "new __" + id.get(0).toString() + "()"));
+                if (n.getProperty("stackSlot") != null) newArgs.add(GNode.create("Argument", "__rt::pin(" + n.getProperty("stackSlot") + ")"));
+                else newArgs.add(GNode.create("Argument", "new __" + id.get(0).toString() + "()"));
                 for (int j = 0; j < oldArgs.size(); j++) newArgs.add(oldArgs.get(j));
                 id.set(0, "__" + id.get(0) + "::__init");
+                copyHeapArguments(newArgs);
             }
             visit(n);
         }
@@ -694,6 +1007,20 @@ public class Phase4 {
             SymbolTableUtil.exitScope(table, n);
         }
 
+        /**
+         * Helper method: isDefinedInMethod
+         * Whether the name is a parameter or local of the enclosing method,
+         * looking through the blocks nested in its body, e.g. synchronized blocks.
+         *
+         */
+        public boolean isDefinedInMethod(String name) {
+            for (SymbolTable.Scope scope = table.current().getParent(); scope != null; scope = scope.getParent()) {
+                if (scope.isDefinedLocally(name)) return true;
+                if (!scope.getName().startsWith("block(")) return false;
+            }
+            return false;
+        }
+
         /**
          * Check whether the variables inside the scope are defined
          * Marks a scope in the symbol table and then continues visiting
@@ -701,11 +1028,12 @@ public class Phase4 {
          */
         public void visitPrimaryIdentifier(GNode n) {
 
-            if (n.get(0).toString().contains("__this") || n.getString(0).equals("System")) return;
+            // tmp is declared by the translation itself, e.g. for checked stores
+            if (n.get(0).toString().contains("__this") || n.getString(0).equals("System") || n.getString(0).equals("tmp")) return;
 
             //add this to field data
             if (!isMain) {
-                if (!table.current().getParent().isDefinedLocally(n.get(0).toString())) {
+                if (!isDefinedInMethod(n.get(0).toString())) {
                     n.set(0, "__this -> " + n.get(0).toString());
                 }
             }
@@ -725,8 +1053,8 @@ public class Phase4 {
 
             visit(n);
 
-            // if there is an array store
-            if (null == n.getProperty("Store")) {
+            // if there is an array store, or the access is known to be in bounds
+            if (null == n.getProperty("Store") && null == n.getProperty("InBounds")) {
                 n.setProperty("Store", "Access");
                 String check = "__rt::arrayAccessCheck";
                 n.setProperty("AccessCheck", check);
@@ -784,12 +1112,14 @@ public class Phase4 {
         /**
          * Visitor for For Statement
          *
-         * Mark it in the symbol table
+         * Mark it in the symbol table, array accesses that a canonical
+         * loop keeps in bounds are marked so they go unchecked
          *
          */
         public void visitForStatement(GNode n) {
             SymbolTableUtil.enterScope(table, n);
             table.mark(n);
+            BoundsCheck.markInBounds(n, table);
             visit(n);
             SymbolTableUtil.exitScope(table, n);
         }
@@ -817,32 +1147,18 @@ public class Phase4 {
 
                     //get the setTo value
                     Node setTo = expressionNode.getNode(2);
-                    boolean isPrimitive = true;
 
-                    //find if the setTo is of class types
-                    if (setTo.hasName("PrimaryIdentifier")) {
-                        Type toType = ((VariableT) table.current().lookup(setTo.get(0).toString())).getType();
-                        if (toType.tag().equals("CLASS")) {
-                            isPrimitive = false;
-                        }
-                    }
-
-                    if (setTo.hasName("CallExpression")) {
-                        if (((Type) setTo.getProperty("methodReturnType")).tag().equals("CLASS")) {
-                            isPrimitive = false;
-                        }
-                    }
-
-                    if (setTo.hasName("NewClassExpression")) {
-                        isPrimitive = false;
-                    }
-
-                    if (setTo.hasName("NewArrayExpression")) {
-                        isPrimitive = false;
-                    }
+                    //find if the array element is of a primitive type, from the static type of the access
+                    Type elementType = TypeUtil.getType(expressionNode.getNode(0));
+                    if (elementType != null && elementType.isVariable()) elementType = elementType.toVariable().getType();
+                    if (elementType != null && elementType.isAnnotated()) elementType = elementType.deannotate();
+                    boolean isPrimitive = elementType != null && JavaEntities.isPrimitiveT(elementType);
 
                     //__rt::checkNotNull does not apply for primitive types
                     //so arrayAccessCheck is used here
+                    //an access known to be in bounds needs no check at all
+                    boolean inBounds = null != expressionNode.getNode(0).getProperty("InBounds");
+
                     if (isPrimitive) {
                         expressionNode.getNode(0).setProperty("Store", "Store");
                         GNode newBlock = GNode.create("ExpressionBlock");
@@ -857,7 +1173,7 @@ public class Phase4 {
                         GNode realExpression = GNode.create("realExpression", expressionNode.getNode(0), "=", expressionNode.getNode(2));
 
                         // add everything to new block
-                        newBlock.add(check);
+                        if (!inBounds) newBlock.add(check);
                         newBlock.add(realExpression);
 
                         n.set(0, newBlock);
@@ -874,18 +1190,26 @@ public class Phase4 {
                                                     GNode.create("DefExpression", "Object tmp", "=", expressionNode.getNode(2)));
 
                         // add run-time checks for arrays
+                        // in bounds, only the type of the stored object is left to check, if it isn't proven safe too
+                        boolean safeStore = isSafeStore(expressionNode.getNode(0).getNode(0), setTo);
                         GNode check = GNode.create("Check");
-                        check.add("__rt::arrayStoreCheck");
-                        check.add(expressionNode.getNode(0).getNode(0));
-                        check.add(expressionNode.getNode(0).getNode(1));
-                        check.add(GNode.create("PrimaryIdentifier", "tmp"));
+                        if (safeStore) {
+                            check.add("__rt::arrayAccessCheck");
+                            check.add(expressionNode.getNode(0).getNode(0));
+                            check.add(expressionNode.getNode(0).getNode(1));
+                        } else {
+                            check.add(inBounds ? "__rt::checkStore" : "__rt::arrayStoreCheck");
+                            check.add(expressionNode.getNode(0).getNode(0));
+                            if (!inBounds) check.add(expressionNode.getNode(0).getNode(1));
+                            check.add(GNode.create("PrimaryIdentifier", "tmp"));
+                        }
 
                         // create real expression
                         GNode realExpression = GNode.create("realExpression", expressionNode.getNode(0), "=", GNode.create("PrimaryIdentifier", "tmp"));
 
                         // add everything to new block
                         newBlock.add(tmpDef);
-                        newBlock.add(check);
+                        if (!(inBounds && safeStore)) newBlock.add(check);
                         newBlock.add(realExpression);
 
                         n.set(0, newBlock);
@@ -979,6 +1303,11 @@ public class Phase4 {
                         n.setProperty("initStatements", initStatements);
                     } 
 
+                    // a call on this which no subclass overrides is made directly
+                    else if (monomorphicTarget(currentClass, n.getString(2)) != null) {
+                        n.set(2, "__" + monomorphicTarget(currentClass, n.getString(2)) + "::" + n.get(2));
+                    }
+
                     else n.set(2, "__this -> __vptr -> " + n.get(2));
 
                     // update arguments accordingly
@@ -991,6 +1320,7 @@ public class Phase4 {
                             if (!oldArg.equals(newArgs.get(0)) && oldArg != null ) newArgs.add(oldArg);
                         }
                     }
+                    if (constructorFlag) copyHeapArguments(newArgs);
                 }
             }
 
@@ -1000,18 +1330,18 @@ public class Phase4 {
                 // translate System.out.(print/println) if it happens
                 if (primaryIdentifierNode.get(0).toString().equals("System")) {
 
-                    // print statement with println, aka endl
+                    // print statement with println, a newline which leaves flushing to the buffered __rt::out
                     if (selectionStatementNode.get(1).toString().equals("-> out") && n.get(2).toString().equals("println")) {
 
                         undone = false;
                         n.setProperty("noblock", "cout");
                         n.setProperty("cout", "cout");
                         n.set(0, null);
-                        n.set(2, "std::cout");
+                        n.set(2, "__rt::out()");
                         GNode newArgs = GNode.create("Arguments");
                         GNode oldArgs = (GNode) n.get(3);
                         for (Object oldArg : oldArgs) newArgs.add(oldArg);
-                        newArgs.add("std::endl");
+                        newArgs.add("'\\n'");
                         n.set(3, newArgs);
                     }
 
@@ -1022,7 +1352,16 @@ public class Phase4 {
                         n.setProperty("noblock", "cout");
                         n.setProperty("cout", "cout");
                         n.set(0, null);
-                        n.set(2, "std::cout");
+                        n.set(2, "__rt::out()");
+                    }
+
+                    // System.out.flush() writes out what __rt::out has buffered
+                    if (selectionStatementNode.get(1).toString().equals("-> out") && n.get(2).toString().equals("flush")) {
+
+                        undone = false;
+                        n.setProperty("noblock", "cout");
+                        n.set(0, null);
+                        n.set(2, "__rt::out().flush");
                     }
                 }
             }
@@ -1106,6 +1445,7 @@ public class Phase4 {
                         // dispatch type is static, no need to pass this
                         else if (n.getProperty("methodDispatchType").toString().equals("static")) {
                             n.set(2, "::" + methodName);
+                            if (n.getNode(3) != null) copyHeapArguments((GNode) n.getNode(3));
                         }
                     }
 
@@ -1236,6 +1576,16 @@ public class Phase4 {
                 realCallExpression.add(GNode.create("PrimaryIdentifier", "tmp"));
 
                 for (int i = 1; i < n.size(); i++) realCallExpression.add(n.get(i));
+
+                // the receiver is checked above, a virtual call with only one reachable definition is made directly
+                String virtualCall = "-> __vptr -> ";
+                if (n.get(2) instanceof String && n.getString(2).startsWith(virtualCall)) {
+                    String target = monomorphicTarget(tmpDef, n.getString(2).substring(virtualCall.length()));
+                    if (target != null) {
+                        realCallExpression.set(0, GNode.create("PrimaryIdentifier", "__" + target));
+                        realCallExpression.set(2, "::" + n.getString(2).substring(virtualCall.length()));
+                    }
+                }
                 realExpression.add(realCallExpression);
                 callExpressionBlock.add(realExpression);
                 n.set(0, callExpressionBlock);
@@ -24,6 +24,10 @@ import java.io.BufferedWriter;
 import java.io.FileOutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Print out the information in the AST in a concrete C++ syntax generated from Phase 4
@@ -46,6 +50,14 @@ public class Phase5 extends Visitor {
 
     String headoffile;
 
+    // the string literals of the unit being printed and the pool holding them, see LiteralPool in java_lang.h
+    private LinkedHashMap<String, Integer> literals = new LinkedHashMap<String, Integer>();
+    private String literalPool = "";
+    private int units = 0;
+
+    // literals earlier phases already spelled out as C++ text, e.g. field initializers
+    private static final Pattern LITERAL = Pattern.compile("__rt::literal\\((\"(?:[^\"\\\\]|\\\\.)*\")\\s*\\)");
+
     /* Class constructor. Intializing the writer to the file. */
     public Phase5(String name) {
 
@@ -79,17 +91,74 @@ public class Phase5 extends Visitor {
     /* The actual print method */
     public void print(GNode ast) {
 
+        //every distinct string literal of the unit is created once and kept, see LiteralPool
+        literals.clear();
+        literalPool = "__literals_" + units++;
+        collectLiterals(ast);
+        if (!literals.isEmpty()) {
+            printer.pln("namespace");
+            printer.pln("{");
+            printer.p("__rt::LiteralPool<" + literals.size() + "> " + literalPool + " = { {");
+            String separator = " ";
+            for (String literal : literals.keySet()) {
+                printer.p(separator + literal);
+                separator = ", ";
+            }
+            printer.pln(" } };");
+            printer.pln("}").pln().flush();
+        }
+
         dispatch(ast);
         printer.flush();
 
         //Add run-time array definition if needed 
         if (null != ast.getProperty("RuntimeInfo")) {
             printer.pln("namespace __rt {");
-            printer.pln(ast.getProperty("RuntimeInfo").toString());
+            printer.pln(pooled(ast.getProperty("RuntimeInfo").toString()));
             printer.pln("}").flush();
         }
     }
 
+    /**
+     * Gives every string literal of the unit, whether still a StringLiteral node or
+     * already C++ text in a string or property, its index in the unit's pool
+     *
+     * @param n root of the subtree to search
+     */
+    private void collectLiterals(Node n) {
+        if (n.hasName("StringLiteral")) intern(n.getString(0));
+        for (String property : n.properties()) {
+            if (n.getProperty(property) instanceof String) collectText((String) n.getProperty(property));
+        }
+        for (Object o : n) {
+            if (o instanceof Node) collectLiterals((Node) o);
+            else if (o instanceof String) collectText((String) o);
+        }
+    }
+
+    private void collectText(String text) {
+        Matcher m = LITERAL.matcher(text);
+        while (m.find()) intern(m.group(1));
+    }
+
+    private int intern(String literal) {
+        if (!literals.containsKey(literal)) literals.put(literal, literals.size());
+        return literals.get(literal);
+    }
+
+    /**
+     * @param text C++ text
+     * @return the text with its literals taken from the unit's pool
+     */
+    private String pooled(String text) {
+        if (text == null || !text.contains("__rt::literal(")) return text;
+        Matcher m = LITERAL.matcher(text);
+        StringBuffer b = new StringBuffer();
+        while (m.find()) m.appendReplacement(b, Matcher.quoteReplacement(literalPool + "[" + intern(m.group(1)) + "]"));
+        m.appendTail(b);
+        return b.toString();
+    }
+
     /* The claim placed in the beginning of cpp files */
     public void headOfFile() {
         headoffile = "#include \"output.h\"\n#include <iostream>\n\nusing namespace java::lang;";
@@ -124,7 +193,7 @@ public class Phase5 extends Visitor {
 
         //real default constructor
         if (n.getProperty("realDefaultConstructor") != null) {
-            printer.pln((String) n.getProperty("realDefaultConstructor"));
+            printer.pln(pooled((String) n.getProperty("realDefaultConstructor")));
         }
 
         //print main.cpp
@@ -141,10 +210,10 @@ public class Phase5 extends Visitor {
         dispatch(classBody);
 
         //class method
-        printer.pln((String) n.getProperty("classInfo"));
+        printer.pln(pooled((String) n.getProperty("classInfo")));
 
         if (n.getProperty("staticInit") != null) {
-            printer.pln((String) n.getProperty("staticInit"));
+            printer.pln(pooled((String) n.getProperty("staticInit")));
         }
 
         //vtable initialization
@@ -169,25 +238,21 @@ public class Phase5 extends Visitor {
 
     /**
      * Visitor for the instanceof statment
-     * has the stype "a->__vptr->getClass(a)->__vptr->isInstance(a->__vptr->getClass(a), __rt::java_cast<Object>(__B::__init(new __B()));"
+     * has the stype "__rt::instanceOf(__B::__class(), a)", so a is evaluated once,
+     * an array type, already lowered to __rt::Array<T>, takes the class of __rt::__Array<T>
      */
     public void visitInstanceOfExpression(GNode n) {
-        dispatch((Node) n.get(0));
-        printer.p("-> __vptr -> getClass(");
-        dispatch((Node) n.get(0));
-        printer.p(')');
-        printer.p("-> __vptr -> isInstance( ");
-        dispatch((Node) n.get(0));
-        printer.p("-> __vptr -> getClass(");
+        String type = n.getNode(1).getNode(0).getString(0);
+        if (type.startsWith("__rt::Array<")) {
+            printer.p("__rt::instanceOf(__rt::__Array" + type.substring("__rt::Array".length()));
+        }
+        else {
+            printer.p("__rt::instanceOf(__");
+            dispatch((Node) n.get(1));
+        }
+        printer.p("::__class(), ");
         dispatch((Node) n.get(0));
         printer.p(")").flush();
-        printer.p(", __rt::java_cast<Object>(__");
-        dispatch((Node) n.get(1));
-        printer.p("::__init(new __");
-        dispatch((Node) n.get(1));
-        printer.p("()))");
-        printer.p("())").flush();
-
     }
 
     /**
@@ -220,9 +285,11 @@ public class Phase5 extends Visitor {
 
     /**
      * Visitor for FieldDeclaration
-     * Add ";" at the end of each statement
+     * Add ";" at the end of each statement, a local allocated in the
+     * method's frame is preceded by the declaration of its slot
      */
     public void visitFieldDeclaration(GNode n) {
+        if (n.getProperty("stackSlot") != null) printer.pln(n.getProperty("stackSlot") + ";");
         visit(n);
         printer.pln(";").flush();
     }
@@ -252,7 +319,7 @@ public class Phase5 extends Visitor {
         for (int i = 0; i < n.size() - 1; i++) {
             try {
                 GNode child = (GNode) n.getGeneric(i);
-                dispatch(child);
+                printArgument(child);
                 printer.p(", ").flush();
             } catch (Exception e) {}
         }
@@ -260,7 +327,7 @@ public class Phase5 extends Visitor {
         try {
             Object child = n.getGeneric(n.size() - 1);
             if (child instanceof GNode) {
-                dispatch((GNode) child);
+                printArgument((GNode) child);
             } else if (child instanceof String) {
                 printer.p((String) child).flush();
             }
@@ -269,6 +336,19 @@ public class Phase5 extends Visitor {
         printer.p(")").flush();
     }
 
+    /**
+     * Print a single argument, field reads marked by phase4 are passed
+     * through __rt::copy so a borrowed parameter never aliases the field
+     */
+    private void printArgument(GNode child) {
+        if (child.getProperty("borrowCopy") != null) {
+            printer.p("__rt::copy(");
+            dispatch(child);
+            printer.p(")").flush();
+        }
+        else dispatch(child);
+    }
+
     /**
      * Visitor for FormalParameters
      * Same as Arguments
@@ -325,7 +405,7 @@ public class Phase5 extends Visitor {
 
             inCout = true;
 
-            printer.p("std::cout ").flush();
+            printer.p(n.getString(2) + " ").flush();
             GNode arguments = (GNode) n.getGeneric(3);
 
             //print arguments, starts with "<<"
@@ -348,6 +428,18 @@ public class Phase5 extends Visitor {
         inCout = false;
     }
 
+    /**
+     * Visitor for ExpressionBlock defined in phase4
+     * an array store and its checks, in a scope of their own so that each
+     * store declares its own tmp, the statement's ; follows the scope
+     */
+    public void visitExpressionBlock(GNode n) {
+
+        printer.pln("{");
+        visit(n);
+        printer.pln(";").p("}").flush();
+    }
+
     /**
      * Visitor for CallExpressionBlock defined in phase4
      * add ({}) to the content
@@ -403,7 +495,7 @@ public class Phase5 extends Visitor {
             Object o = nn.getProperty("initStatements");
 
             if (o != null) {
-                printer.p(o.toString()).flush();
+                printer.p(pooled(o.toString())).flush();
             }
         }
     }
@@ -460,6 +552,20 @@ public class Phase5 extends Visitor {
 
     }
 
+    /**
+     * Visitor for SynchronizedStatement
+     * print the block in a scope of its own, with a guard holding the
+     * monitor of the object for as long as the block runs
+     */
+    public void visitSynchronizedStatement(GNode n) {
+        printer.p("{ __rt::Synchronized __monitor(").flush();
+        if (n.get(0) instanceof Node) dispatch(n.getNode(0));
+        else printer.p(n.getString(0));
+        printer.pln(");").flush();
+        dispatch(n.getNode(1));
+        printer.pln("}").flush();
+    }
+
     /**
      * Visitor for WhileStatement
      * print while
@@ -479,15 +585,27 @@ public class Phase5 extends Visitor {
         printer.p(")").flush();
     }
 
+    /**
+     * Visitor for ConcatExpression
+     * print a chain of string concatenations as one call of __rt::concat
+     */
+    public void visitConcatExpression(GNode n) {
+        printer.p("__rt::concat(").flush();
+        for (int i = 0; i < n.size(); i++) {
+            if (i > 0) printer.p(", ");
+            if (n.get(i) instanceof Node) dispatch(n.getNode(i));
+            else printer.p(n.getString(i));
+        }
+        printer.p(") ").flush();
+    }
+
     /**
      * Visitor for StringLiteral
-     * print it as __rt::literal("")
+     * print it as its entry in the unit's literal pool
      */
     public void visitStringLiteral(GNode n) {
 
-        printer.p("__rt::literal(").flush();
-        visit(n);
-        printer.p(")").flush();
+        printer.p(literalPool + "[" + intern(n.getString(0)) + "] ").flush();
 
     }
 
@@ -659,7 +777,7 @@ public class Phase5 extends Visitor {
 
             //print string
             if (o instanceof String) {
-                String s = (String) o;
+                String s = pooled((String) o);
 
                 printer.p(s + " ").flush();
             }
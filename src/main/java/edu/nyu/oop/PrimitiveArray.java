@@ -24,24 +24,27 @@ public class PrimitiveArray {
     }
 
     public String dump() {
-        String startDeclaration = "template<>\njava::lang::Class __rt::__Array<";
+        String startDeclaration = "template<>\njava::lang::__Class* __rt::__Array<";
         StringBuilder temp = new StringBuilder(startDeclaration);
         temp.append(cppType);
         temp.append(">::__class()\n");
         temp.append("{\n");
-        temp.append("  static java::lang::Class tk =\n");
+        temp.append("  static java::lang::__Class* k;\n");
+        temp.append("  if (0 == k) {\n");
+        temp.append("  java::lang::Class tk =\n");
         temp.append("\tnew java::lang::__Class(__rt::literal(\"");
         temp.append(javaType);
         temp.append("\"),\n");
         temp.append("\t\t\t\t\t\t\t(java::lang::Class) __rt::null(),\n");
         temp.append("\t\t\t\t\t\t\t(java::lang::Class) __rt::null(),\n");
         temp.append("\t\t\t\t\t\t\ttrue);\n");
-        temp.append("  static java::lang::Class k =\n");
+        temp.append("  k = __rt::registerClass(\n");
         temp.append("\tnew java::lang::__Class(__rt::literal(\"[");
         temp.append(convertToBigType(javaType));
         temp.append("\"),\n");
         temp.append("\t\t\t\t\t\t\tjava::lang::__Object::__class(),\n");
-        temp.append("\t\t\t\t\t\t\ttk);\n");
+        temp.append("\t\t\t\t\t\t\ttk));\n");
+        temp.append("  }\n");
         temp.append("return k;\n");
         temp.append("}\n");
         return temp.toString();
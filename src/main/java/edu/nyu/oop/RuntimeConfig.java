@@ -0,0 +1,46 @@
+package edu.nyu.oop;
+
+import edu.nyu.oop.util.XtcProps;
+import org.slf4j.Logger;
+
+import xtc.util.Runtime;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * Writes rt_config.h next to the translated sources, the compile-time switches of the C++ runtime chosen
+ * on the translator's command line. The runtime includes it if present, so the runtime still compiles on
+ * its own with every switch off.
+ * <p>
+ * The file is rewritten on every translation so a switch never lingers from an earlier run.
+ */
+public class RuntimeConfig {
+
+    private static Logger logger = org.slf4j.LoggerFactory.getLogger(RuntimeConfig.class);
+
+    private static String outputLocation = XtcProps.get("output.location");
+
+    public static void write(Runtime runtime) {
+        try (PrintWriter w = new PrintWriter(new OutputStreamWriter(new FileOutputStream(outputLocation + "rt_config.h"), "utf-8"))) {
+            w.println("#pragma once");
+            w.println();
+            w.println("// Generated by the translator, do not edit.");
+            w.println();
+            define(w, "RT_ARENA", runtime.test("arena"));
+            define(w, "RT_POOL", runtime.test("pool"));
+            define(w, "RT_UNBUFFERED_STDOUT", runtime.test("unbufferedStdout"));
+            define(w, "RT_THREADS", runtime.test("threadSafe"));
+            define(w, "RT_CYCLES", runtime.test("cycleCollector"));
+        } catch (IOException e) {
+            throw new RuntimeException("Output location not found. Create the /output directory.");
+        }
+    }
+
+    private static void define(PrintWriter w, String name, boolean on) {
+        w.println("#define " + name + " " + (on ? 1 : 0));
+        if (on) logger.debug("Runtime switch " + name + " is on");
+    }
+}
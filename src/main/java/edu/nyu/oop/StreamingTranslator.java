@@ -0,0 +1,66 @@
+package edu.nyu.oop;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+import edu.nyu.oop.util.SymbolTableBuilder;
+import org.slf4j.Logger;
+
+import xtc.tree.GNode;
+import xtc.tree.Node;
+import xtc.util.Runtime;
+import xtc.util.SymbolTable;
+
+/**
+ * Translates a primary source and its dependencies without keeping every C++ tree alive at once.
+ * <p>
+ * Only two facts are global to the translation, the initializers collected by Phase 1 and the class
+ * hierarchy and vtables collected by Phase 2. Phase 1 therefore still parses and mangles every unit up front,
+ * and every Java AST and symbol table stays alive until its turn in Phase 4. What is streamed are the C++
+ * trees: each layout is printed to output.h as soon as Phase 2 builds it and is then dropped, and each
+ * Java AST is taken off the queue, lowered by Phase 4, printed by Phase 5 and released along with its
+ * symbol table. StreamingTranslatorTest checks that the output matches the phase-at-a-time translation in Boot.
+ */
+public class StreamingTranslator {
+
+    private Logger logger = org.slf4j.LoggerFactory.getLogger(this.getClass());
+
+    private Runtime runtime;
+
+    public StreamingTranslator(Runtime runtime) {
+        this.runtime = runtime;
+    }
+
+    public void translate(Node n) {
+        // phase 1, every unit has to be mangled before its initializers are known
+        LinkedList<GNode> javaAsts = new LinkedList<GNode>(Phase1.parse(n));
+        LinkedList<SymbolTable> tables = new LinkedList<SymbolTable>();
+        HashMap<String, ArrayList<Phase1.Initializer>> inits = new HashMap<String, ArrayList<Phase1.Initializer>>();
+
+        for (GNode unmangledAst : javaAsts) {
+            SymbolTable table = new SymbolTableBuilder(runtime).getTable(unmangledAst);
+            inits.putAll(Phase1.mangle(runtime, table, unmangledAst));
+            tables.add(table);
+        }
+
+        // phase 2 and 3, each layout is printed as soon as it is built, only the hierarchy is kept
+        Phase3 phase3 = new Phase3();
+        Phase2.Hierarchy hierarchy = new Phase2.Hierarchy();
+
+        for (GNode javaAst : javaAsts) {
+            phase3.print((GNode) Phase2.runPhase2(javaAst, hierarchy));
+        }
+
+        // phase 4 and 5, each unit is released once it has been printed
+        Phase4 phase4 = new Phase4(runtime, hierarchy.childrenToParents, hierarchy.vtableTargets, hierarchy.thisCalls, inits);
+        Phase5 printer = new Phase5("output.cpp");
+
+        while (!javaAsts.isEmpty()) {
+            GNode ast = (GNode) phase4.runNode(javaAsts.poll(), tables.poll());
+            printer.headOfFile();
+            printer.print(ast);
+            logger.debug("Emitted compilation unit, " + javaAsts.size() + " remaining");
+        }
+    }
+}
@@ -17,12 +17,12 @@ import java.util.ArrayList;
 
 public class VMethod {
 
-    public String accessModifier;
+    public Modifier accessModifier;
     public boolean isStatic;
     public String name;
     public String initial;
 
-    public VMethod(String accessModifier, boolean isStatic, String name, String initial) {
+    public VMethod(Modifier accessModifier, boolean isStatic, String name, String initial) {
         this.accessModifier = accessModifier;
         this.isStatic = isStatic;
         this.name = name;
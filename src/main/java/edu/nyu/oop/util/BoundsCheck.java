@@ -0,0 +1,202 @@
+package edu.nyu.oop.util;
+
+import xtc.lang.JavaEntities;
+import xtc.tree.GNode;
+import xtc.tree.Node;
+import xtc.tree.Visitor;
+import xtc.type.Type;
+import xtc.util.SymbolTable;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Finds array accesses which can't be out of bounds or on null, so Phase 4 can leave out their run-time checks.
+ * <p>
+ * Only canonical counted loops are recognized, i.e. {@code for (int i = c; i < a.length; i++)} with a
+ * non-negative literal c. Within such a loop's body every {@code a[i]} is in bounds and on a non-null array,
+ * since the condition checked {@code a} for null and {@code i} against its length right before, provided
+ * the body never changes {@code i} or what {@code a} refers to. The array may be a local variable or
+ * parameter, or a row {@code a[k]} of one, as with the inner loop over a two-dimensional array. Rows can also
+ * be replaced through an alias or by a method, so a row is only trusted when the body makes no calls other
+ * than printing, creates no objects and stores nothing but primitives and Strings into
+ * elements of arrays.
+ * <p>
+ * Safe accesses are marked with the "InBounds" property. This has to see the loop before Phase 4 rewrites
+ * it, with the loop's scope entered in the symbol table.
+ */
+public class BoundsCheck {
+
+    /**
+     * @param loop a ForStatement node
+     * @param table symbol table with the loop's scope as the current scope
+     */
+    public static void markInBounds(GNode loop, SymbolTable table) {
+        Node control = loop.getNode(0);
+        if (!control.hasName("BasicForControl")) return;
+
+        // for (int i = c; ...
+        Node type = control.getNode(1);
+        Node declarators = control.getNode(2);
+        if (type == null || declarators == null || declarators.size() != 1) return;
+        if (!type.getNode(0).hasName("PrimitiveType") || !type.getNode(0).getString(0).equals("int") || type.get(1) != null) return;
+
+        Node declarator = declarators.getNode(0);
+        final String index = declarator.getString(0);
+        if (declarator.get(1) != null || !isNonNegativeLiteral(declarator.get(2))) return;
+
+        // ... i < a.length; ...
+        Node condition = control.getNode(3);
+        if (condition == null || !condition.hasName("RelationalExpression") || !condition.getString(1).equals("<")) return;
+        if (!isIdentifier(condition.getNode(0), index)) return;
+
+        Node length = condition.getNode(2);
+        if (!length.hasName("SelectionExpression") || !length.getString(1).equals("length")) return;
+        final Node array = length.getNode(0);
+        if (!isPath(array, index)) return;
+
+        // ... i++)
+        Node updates = control.getNode(4);
+        if (updates == null || updates.size() != 1 || !isIncrement(updates.getNode(0), index)) return;
+
+        final Node root = root(array);
+        final String rootName = root.getString(0);
+        Type rootType = (Type) table.current().lookup(rootName);
+        if (rootType == null || !(JavaEntities.isLocalT(rootType) || JavaEntities.isParameterT(rootType))) return;
+
+        Node body = loop.getNode(1);
+        if (!unchanged(body, array, index, table, !array.hasName("PrimaryIdentifier"))) return;
+
+        final String path = array.toString();
+        new Visitor() {
+            public void visitSubscriptExpression(GNode n) {
+                if (isIdentifier(n.getNode(1), index) && n.getNode(0).toString().equals(path)) n.setProperty("InBounds", true);
+                visit(n);
+            }
+
+            public void visit(Node n) {
+                for (Object o : n) if (o instanceof Node) dispatch((Node) o);
+            }
+        } .dispatch(body);
+    }
+
+    /** Whether the body leaves the index and every variable of the array path alone, and rows too if asked. */
+    private static boolean unchanged(Node body, Node array, String index, final SymbolTable table, final boolean rows) {
+        final Set<String> names = new HashSet<String>();
+        names.add(index);
+        for (Node p = array; ; p = p.getNode(0)) {
+            if (p.hasName("PrimaryIdentifier")) {
+                names.add(p.getString(0));
+                break;
+            }
+            names.add(p.getNode(1).getString(0));
+        }
+
+        final boolean[] safe = { true };
+        new Visitor() {
+            public void visitExpression(GNode n) {
+                Node target = n.getNode(0);
+                if (target.hasName("PrimaryIdentifier") && names.contains(target.getString(0))) safe[0] = false;
+                if (rows && target.hasName("SubscriptExpression") && mayStoreArray(target, table)) safe[0] = false;
+                visit(n);
+            }
+
+            public void visitPostfixExpression(GNode n) {
+                if (n.getNode(0).hasName("PrimaryIdentifier") && names.contains(n.getNode(0).getString(0))) safe[0] = false;
+                visit(n);
+            }
+
+            public void visitUnaryExpression(GNode n) {
+                Object operand = n.get(1);
+                if (operand instanceof Node && ((Node) operand).hasName("PrimaryIdentifier")
+                        && names.contains(((Node) operand).getString(0))) safe[0] = false;
+                visit(n);
+            }
+
+            // a local shadowing part of the path would make the accesses refer to another array
+            public void visitDeclarator(GNode n) {
+                if (names.contains(n.getString(0))) safe[0] = false;
+                visit(n);
+            }
+
+            public void visitCallExpression(GNode n) {
+                if (rows && !isPrint(n)) safe[0] = false;
+                visit(n);
+            }
+
+            public void visitNewClassExpression(GNode n) {
+                if (rows) safe[0] = false;
+                visit(n);
+            }
+
+            public void visit(Node n) {
+                for (Object o : n) if (o instanceof Node) dispatch((Node) o);
+            }
+        } .dispatch(body);
+        return safe[0];
+    }
+
+    /** Whether storing to the given element may replace a row of some array, true when unsure. */
+    private static boolean mayStoreArray(Node target, SymbolTable table) {
+        int depth = 0;
+        Node p = target;
+        while (p.hasName("SubscriptExpression")) {
+            depth++;
+            p = p.getNode(0);
+        }
+        if (!p.hasName("PrimaryIdentifier")) return true;
+
+        Type type = (Type) table.current().lookup(p.getString(0));
+        if (type == null) return true;
+        // an Object, Cloneable or Serializable element may be a row of an aliased array
+        type = type.resolve();
+        for (int i = 0; i < depth; i++) {
+            if (!type.isArray()) return true;
+            type = type.toArray().getType().resolve();
+        }
+        return !JavaEntities.isPrimitiveT(type) && !isString(type);
+    }
+
+    private static boolean isString(Type type) {
+        return type.isClass() && type.toClass().getQName().equals("java.lang.String");
+    }
+
+    /** A local or parameter, optionally indexed by identifiers other than the loop's index, e.g. a or a[k]. */
+    private static boolean isPath(Node n, String index) {
+        if (n.hasName("PrimaryIdentifier")) return true;
+        return n.hasName("SubscriptExpression") && n.getNode(1).hasName("PrimaryIdentifier")
+               && !n.getNode(1).getString(0).equals(index) && isPath(n.getNode(0), index);
+    }
+
+    private static Node root(Node path) {
+        while (!path.hasName("PrimaryIdentifier")) path = path.getNode(0);
+        return path;
+    }
+
+    private static boolean isIdentifier(Node n, String name) {
+        return n.hasName("PrimaryIdentifier") && n.getString(0).equals(name);
+    }
+
+    private static boolean isIncrement(Node n, String index) {
+        if (n.hasName("PostfixExpression")) return isIdentifier(n.getNode(0), index) && n.getString(1).equals("++");
+        if (n.hasName("UnaryExpression")) return n.getString(0).equals("++") && isIdentifier(n.getNode(1), index);
+        return false;
+    }
+
+    private static boolean isNonNegativeLiteral(Object o) {
+        if (!(o instanceof Node) || !((Node) o).hasName("IntegerLiteral")) return false;
+        try {
+            return Integer.parseInt(((Node) o).getString(0)) >= 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    // System.out.print and System.out.println only read their arguments
+    private static boolean isPrint(Node call) {
+        Node receiver = call.getNode(0);
+        return receiver != null && receiver.hasName("SelectionExpression") && receiver.getString(1).equals("out")
+               && isIdentifier(receiver.getNode(0), "System")
+               && (call.getString(2).equals("print") || call.getString(2).equals("println"));
+    }
+}
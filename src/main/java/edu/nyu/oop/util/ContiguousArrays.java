@@ -0,0 +1,131 @@
+package edu.nyu.oop.util;
+
+import xtc.tree.GNode;
+import xtc.tree.Node;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds the rectangular arrays of a method which can be laid out in one contiguous block, see the
+ * -contiguousArrays option.
+ * <p>
+ * The rows of a contiguous array are carved out of the block of the whole array and are freed along with it,
+ * so no row may ever be referenced on its own. A local qualifies when every value it is assigned is an
+ * allocation {@code new T[a][b]...} of a primitive T with all dimensions given, and it is only used indexed
+ * down to an element, as in {@code m[i][j]}, or for a length, as in {@code m.length} or {@code m[i].length}.
+ * Passing the array on, aliasing it, reading a row or replacing one all disqualify it.
+ * <p>
+ * The allocations of qualifying locals are marked with the "Contiguous" property. This has to see the
+ * method before Phase 4 rewrites it.
+ */
+public class ContiguousArrays {
+
+    /**
+     * @param method a MethodDeclaration node
+     */
+    public static void markContiguous(GNode method) {
+        if (method.getNode(7) == null) return;
+
+        final HashMap<String, Integer> dimensions = new HashMap<String, Integer>();
+        final HashMap<String, List<Node>> allocations = new HashMap<String, List<Node>>();
+        final Set<String> rejected = new HashSet<String>();
+        candidates(method.getNode(7), dimensions, allocations, rejected);
+        for (String name : rejected) dimensions.remove(name);
+
+        uses(method.getNode(7), dimensions, allocations, rejected);
+
+        for (String name : dimensions.keySet()) {
+            if (rejected.contains(name)) continue;
+            for (Node allocation : allocations.get(name)) allocation.setProperty("Contiguous", true);
+        }
+    }
+
+    /** Collects the locals initialized with a rectangular allocation, a name declared twice is rejected. */
+    private static void candidates(Node n, HashMap<String, Integer> dimensions, HashMap<String, List<Node>> allocations,
+                                   Set<String> rejected) {
+        if (n.hasName("Declarator")) {
+            String name = n.getString(0);
+            int rank = rank(n.get(2));
+            if (rank == 0 || dimensions.containsKey(name)) rejected.add(name);
+            else {
+                dimensions.put(name, rank);
+                allocations.put(name, new ArrayList<Node>());
+                allocations.get(name).add(n.getNode(2));
+            }
+        }
+        for (Object o : n) if (o instanceof Node) candidates((Node) o, dimensions, allocations, rejected);
+    }
+
+    /** Rejects every candidate which is used other than indexed down to an element or for a length. */
+    private static void uses(Node n, HashMap<String, Integer> dimensions, HashMap<String, List<Node>> allocations,
+                             Set<String> rejected) {
+        // m.length or m[i].length
+        if (n.hasName("SelectionExpression") && "length".equals(n.get(1))) {
+            String name = root(n.getNode(0), dimensions);
+            if (name != null && depth(n.getNode(0)) < dimensions.get(name)) {
+                indices(n.getNode(0), dimensions, allocations, rejected);
+                return;
+            }
+        }
+
+        // m[i][j]
+        if (n.hasName("SubscriptExpression")) {
+            String name = root(n, dimensions);
+            if (name != null) {
+                if (depth(n) != dimensions.get(name)) rejected.add(name);
+                indices(n, dimensions, allocations, rejected);
+                return;
+            }
+        }
+
+        // m = new int[a][b]
+        if (n.hasName("Expression") && n.getNode(0).hasName("PrimaryIdentifier")) {
+            String name = n.getNode(0).getString(0);
+            if (dimensions.containsKey(name)) {
+                if (!"=".equals(n.get(1)) || rank(n.get(2)) != dimensions.get(name)) rejected.add(name);
+                else allocations.get(name).add(n.getNode(2));
+                uses(n.getNode(2), dimensions, allocations, rejected);
+                return;
+            }
+        }
+
+        // anything else seeing the array as a whole
+        if (n.hasName("PrimaryIdentifier") && dimensions.containsKey(n.getString(0))) rejected.add(n.getString(0));
+
+        for (Object o : n) if (o instanceof Node) uses((Node) o, dimensions, allocations, rejected);
+    }
+
+    /** Checks the index expressions of a path like m[i][j], the path itself is fine. */
+    private static void indices(Node path, HashMap<String, Integer> dimensions, HashMap<String, List<Node>> allocations,
+                                Set<String> rejected) {
+        while (path.hasName("SubscriptExpression")) {
+            uses(path.getNode(1), dimensions, allocations, rejected);
+            path = path.getNode(0);
+        }
+    }
+
+    /** The candidate a path like m[i][j] starts from, null if it starts from anything else. */
+    private static String root(Node path, HashMap<String, Integer> dimensions) {
+        while (path.hasName("SubscriptExpression")) path = path.getNode(0);
+        if (!path.hasName("PrimaryIdentifier") || !dimensions.containsKey(path.getString(0))) return null;
+        return path.getString(0);
+    }
+
+    private static int depth(Node path) {
+        int depth = 0;
+        for (; path.hasName("SubscriptExpression"); path = path.getNode(0)) depth++;
+        return depth;
+    }
+
+    /** The number of dimensions of an allocation {@code new T[a][b]...} of a primitive T, 0 for anything else. */
+    private static int rank(Object o) {
+        if (!(o instanceof Node) || !((Node) o).hasName("NewArrayExpression")) return 0;
+        Node n = (Node) o;
+        if (!n.getNode(0).hasName("PrimitiveType") || n.get(2) != null || n.get(3) != null) return 0;
+        return n.getNode(1).size() < 2 ? 0 : n.getNode(1).size();
+    }
+}
@@ -0,0 +1,226 @@
+package edu.nyu.oop.util;
+
+import xtc.tree.GNode;
+import xtc.tree.Node;
+import xtc.tree.Visitor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Decides which reference parameters of a method may be passed as borrowed `const T&` instead of by value,
+ * sparing a reference count increment and decrement per argument and call.
+ * <p>
+ * Only methods that are never dispatched through a vtable qualify, i.e. static methods, private methods and
+ * constructors, since every vtable slot shares one by-value signature. A parameter qualifies when the body
+ * never assigns it and never stores it into a field or array element. For instance methods and constructors
+ * the same holds for the implicit __this, which escapes whenever `this` itself is stored.
+ * <p>
+ * Phase 2 (declarations) and Phase 4 (definitions) both ask this class so the two always agree. It has to
+ * see the method after Phase 1 and before Phase 4 rewrites it.
+ * <p>
+ * It also finds the objects which never outlive the method allocating them, so Phase 4 can place them in the
+ * method's frame. That takes two parts, the uses of a local within its method ({@link #confinedAllocations}),
+ * and what the methods called on the object do with {@code this} ({@link #thisCalls}), which Phase 2 records
+ * for every class and Phase 4 follows through the calls.
+ */
+public class EscapeCheck {
+
+    /**
+     * @param method a MethodDeclaration or ConstructorDeclaration node
+     * @return names of the parameters which may be borrowed, "__this" included when it qualifies
+     */
+    public static Set<String> borrowedParameters(GNode method) {
+        final Set<String> borrowed = new HashSet<String>();
+
+        // constructors come either as ConstructorDeclaration or as a MethodDeclaration without a result type
+        boolean declared = method.hasName("ConstructorDeclaration");
+        boolean constructor = declared || method.get(2) == null;
+        boolean isStatic = hasModifier(method, "static");
+        if (!constructor && !isStatic && !hasModifier(method, "private")) return borrowed;
+
+        String name = method.getString(declared ? 2 : 3);
+        Node params = method.getNode(declared ? 3 : 4);
+        if (name.equals("main")) return borrowed;
+
+        for (Object o : params) {
+            Node param = (Node) o;
+            if (isReference(param.getNode(1))) borrowed.add(param.getString(3));
+        }
+        if (!isStatic) borrowed.add("__this");
+
+        new Visitor() {
+            public void visitExpression(GNode n) {
+                Node target = n.getNode(0);
+                Object value = n.get(2);
+
+                // an assigned parameter can't be const
+                if (target.hasName("PrimaryIdentifier")) borrowed.remove(target.getString(0));
+
+                // storing into the heap keeps the argument alive beyond the call, leave those by value
+                else if (value instanceof Node) {
+                    Node v = (Node) value;
+                    if (v.hasName("PrimaryIdentifier")) borrowed.remove(v.getString(0));
+                    else if (v.hasName("ThisExpression")) borrowed.remove("__this");
+                }
+                visit(n);
+            }
+
+            public void visit(Node n) {
+                for (Object o : n) if (o instanceof Node) dispatch((Node) o);
+            }
+        } .dispatch(method);
+
+        return borrowed;
+    }
+
+    /**
+     * @param method a MethodDeclaration, ConstructorDeclaration, or a FieldDeclaration of a class
+     * @return mangled names of the methods called on `this`, null if `this` is used any other way
+     */
+    public static Set<String> thisCalls(GNode method) {
+        final Set<String> calls = new HashSet<String>();
+        final boolean[] escapes = { false };
+
+        new Visitor() {
+            // reading or writing a field through this keeps this where it is
+            public void visitSelectionExpression(GNode n) {
+                if (!n.getNode(0).hasName("ThisExpression")) dispatch(n.getNode(0));
+            }
+
+            public void visitCallExpression(GNode n) {
+                Node receiver = n.getNode(0);
+                if (receiver != null && receiver.hasName("ThisExpression")) calls.add(calledName(n));
+                else if (receiver != null && receiver.hasName("SuperExpression")) escapes[0] = true;
+                else if (receiver != null) dispatch(receiver);
+                dispatch(n.getNode(3));
+            }
+
+            public void visitThisExpression(GNode n) {
+                escapes[0] = true;
+            }
+
+            public void visit(Node n) {
+                for (Object o : n) if (o instanceof Node) dispatch((Node) o);
+            }
+        } .dispatch(method);
+
+        return escapes[0] ? null : calls;
+    }
+
+    /**
+     * A local initialized with {@code new C(...)} that the method only ever uses to access fields and call
+     * methods on. Whether the object survives the method then only depends on what C's constructors and
+     * those methods do with {@code this}.
+     */
+    public static class Allocation {
+        /** the local's FieldDeclaration */
+        public final GNode declaration;
+        /** its NewClassExpression */
+        public final GNode allocation;
+        public final String className;
+        /** mangled names of the methods called on the local */
+        public final Set<String> calls = new HashSet<String>();
+
+        Allocation(GNode declaration, GNode allocation, String className) {
+            this.declaration = declaration;
+            this.allocation = allocation;
+            this.className = className;
+        }
+    }
+
+    /**
+     * @param method a MethodDeclaration node
+     * @return the allocations bound to a local which never escapes through the method itself
+     */
+    public static List<Allocation> confinedAllocations(GNode method) {
+        final HashMap<String, Allocation> candidates = new HashMap<String, Allocation>();
+        final Set<String> rejected = new HashSet<String>();
+        if (method.getNode(7) == null) return new ArrayList<Allocation>();
+
+        // a parameter may share its name with a local of a nested scope
+        for (Object o : method.getNode(4)) rejected.add(((Node) o).getString(3));
+
+        new Visitor() {
+            public void visitBlock(GNode n) {
+                for (Object o : n) {
+                    if (o instanceof Node && ((Node) o).hasName("FieldDeclaration")) candidate((GNode) o);
+                }
+                visit(n);
+            }
+
+            // only a local declared directly in a block, alone in its declaration, and of a unique name
+            private void candidate(GNode declaration) {
+                Node declarators = declaration.getNode(2);
+                if (declarators.size() != 1) return;
+                Node declarator = declarators.getNode(0);
+                String name = declarator.getString(0);
+                Object init = declarator.get(2);
+                if (declarator.get(1) != null || !(init instanceof Node) || !((Node) init).hasName("NewClassExpression")) return;
+
+                GNode allocation = (GNode) init;
+                Node type = allocation.getNode(2);
+                if (allocation.get(0) != null || allocation.get(4) != null || !type.hasName("QualifiedIdentifier") || type.size() != 1) return;
+
+                if (candidates.containsKey(name)) rejected.add(name);
+                else candidates.put(name, new Allocation(declaration, allocation, type.getString(0)));
+            }
+
+            public void visitDeclarator(GNode n) {
+                Object init = n.get(2);
+                if (!candidates.containsKey(n.getString(0)) || candidates.get(n.getString(0)).allocation != init) {
+                    rejected.add(n.getString(0));
+                }
+                visit(n);
+            }
+
+            public void visitSelectionExpression(GNode n) {
+                if (!n.getNode(0).hasName("PrimaryIdentifier")) dispatch(n.getNode(0));
+            }
+
+            public void visitCallExpression(GNode n) {
+                Node receiver = n.getNode(0);
+                if (receiver != null && receiver.hasName("PrimaryIdentifier") && candidates.containsKey(receiver.getString(0))) {
+                    candidates.get(receiver.getString(0)).calls.add(calledName(n));
+                } else if (receiver != null) dispatch(receiver);
+                dispatch(n.getNode(3));
+            }
+
+            // assigned, passed, returned, stored, or compared
+            public void visitPrimaryIdentifier(GNode n) {
+                rejected.add(n.getString(0));
+            }
+
+            public void visit(Node n) {
+                for (Object o : n) if (o instanceof Node) dispatch((Node) o);
+            }
+        } .dispatch(method.getNode(7));
+
+        List<Allocation> confined = new ArrayList<Allocation>();
+        for (String name : candidates.keySet()) {
+            if (!rejected.contains(name)) confined.add(candidates.get(name));
+        }
+        return confined;
+    }
+
+    private static String calledName(Node call) {
+        Object mangled = call.getProperty("mangledName");
+        return mangled != null ? mangled.toString().replaceAll("\\s", "") : call.getString(2);
+    }
+
+    private static boolean hasModifier(GNode method, String modifier) {
+        Node modifiers = method.getNode(0);
+        if (modifiers == null) return false;
+        for (Object o : modifiers) {
+            if (o instanceof Node && modifier.equals(((Node) o).getString(0))) return true;
+        }
+        return false;
+    }
+
+    private static boolean isReference(Node type) {
+        return !type.getNode(0).hasName("PrimitiveType") || type.get(1) != null;
+    }
+}
@@ -9,6 +9,14 @@ import xtc.tree.Token;
 import xtc.tree.Visitor;
 
 import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
@@ -18,6 +26,23 @@ public class NodeUtil {
 
     // Also see xtc.lang.JavaEntities
 
+    // Decoder and decoded source buffer are pooled per thread, a parse always finishes before the buffer is reused
+    private static final ThreadLocal<CharsetDecoder> decoders = new ThreadLocal<CharsetDecoder>() {
+        @Override
+        protected CharsetDecoder initialValue() {
+            return StandardCharsets.UTF_8.newDecoder()
+                   .onMalformedInput(CodingErrorAction.REPLACE)
+                   .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+    };
+
+    private static final ThreadLocal<CharBuffer> sourceBuffers = new ThreadLocal<CharBuffer>() {
+        @Override
+        protected CharBuffer initialValue() {
+            return CharBuffer.allocate(64 * 1024);
+        }
+    };
+
     // Takes a node and concatenates all its children into a string with the specified delimiter
     public static String mkString(Node node, String delim) {
         StringBuilder buf = new StringBuilder();
@@ -76,9 +101,9 @@ public class NodeUtil {
     // Parses a Java source file into an XTC AST
     public static Node parseJavaFile(File file) {
         try {
-            InputStream instream = new FileInputStream(file);
-            Reader in = new BufferedReader(new InputStreamReader(instream));
-            JavaFiveParser parser = new JavaFiveParser(in, file.toString(), (int) file.length());
+            CharBuffer source = loadSource(file);
+            Reader in = new CharBufferReader(source);
+            JavaFiveParser parser = new JavaFiveParser(in, file.toString(), source.remaining());
             Result result = parser.pCompilationUnit(0);
             return (Node) parser.value(result);
         } catch (Exception e) {
@@ -86,6 +111,57 @@ public class NodeUtil {
         }
     }
 
+    // Memory-maps a source file and decodes it into this thread's source buffer, ready for reading
+    private static CharBuffer loadSource(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            // UTF-8 never decodes to more chars than it has bytes
+            CharBuffer chars = sourceBuffers.get();
+            if (chars.capacity() < bytes.remaining()) {
+                chars = CharBuffer.allocate(bytes.remaining());
+                sourceBuffers.set(chars);
+            }
+            chars.clear();
+
+            CharsetDecoder decoder = decoders.get();
+            decoder.reset();
+            CoderResult cr = decoder.decode(bytes, chars, true);
+            if (!cr.isUnderflow()) cr.throwException();
+            cr = decoder.flush(chars);
+            if (!cr.isUnderflow()) cr.throwException();
+
+            chars.flip();
+            return chars;
+        }
+    }
+
+    // Reader that hands the parser characters straight out of a decoded source buffer
+    private static class CharBufferReader extends Reader {
+        private final CharBuffer source;
+
+        CharBufferReader(CharBuffer source) {
+            this.source = source;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (len == 0) return 0;
+            if (!source.hasRemaining()) return -1;
+            int n = Math.min(len, source.remaining());
+            source.get(cbuf, off, n);
+            return n;
+        }
+
+        @Override
+        public int read() {
+            return source.hasRemaining() ? source.get() : -1;
+        }
+
+        @Override
+        public void close() {}
+    }
+
     /**
      * Creates a deep copy of the root GNode
      *
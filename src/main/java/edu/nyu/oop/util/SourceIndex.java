@@ -0,0 +1,173 @@
+package edu.nyu.oop.util;
+
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * An index from fully qualified class and package names to the source files found under the locations in
+ * xtc.properties's input.locations property. The locations are walked once, so resolving an import is a
+ * hash lookup instead of a directory scan.
+ * <p>
+ * As with the import parser, if a class or package exists under more than one input location the first
+ * location wins. Setting input.watch=true keeps the index current by rebuilding it whenever a watched
+ * directory changes, which is only useful for a long-running translator.
+ */
+public class SourceIndex {
+    private static Logger logger = org.slf4j.LoggerFactory.getLogger(SourceIndex.class);
+
+    private static SourceIndex instance;
+
+    private final List<Path> roots;
+
+    // Replaced whole on every rebuild, a lookup reads it once and never sees a half built index.
+    private volatile Index index = new Index(new HashMap<String, File>(), new HashMap<String, Set<File>>());
+
+    private WatchService watcher;
+
+    public SourceIndex(List<Path> roots) {
+        this.roots = roots;
+        rebuild();
+    }
+
+    /** The index over the configured input locations, built on first use. */
+    public static synchronized SourceIndex get() {
+        if (instance == null) {
+            instance = new SourceIndex(loadInputLocations());
+            if (Boolean.parseBoolean(XtcProps.get("input.watch", "false"))) instance.watch();
+        }
+        return instance;
+    }
+
+    /** The source file declaring the given class, e.g. inputs.test000.Test000, or null if there is none. */
+    public File findClass(String qualifiedName) {
+        return index.classes.get(qualifiedName);
+    }
+
+    /** The source files directly inside the given package, e.g. inputs.test000, or null if there are none. */
+    public Set<File> findPackage(String packageName) {
+        return index.packages.get(packageName);
+    }
+
+    public synchronized void rebuild() {
+        Map<String, File> classes = new HashMap<String, File>();
+        Map<String, Set<File>> packages = new HashMap<String, Set<File>>();
+
+        for (Path root : roots) {
+            if (!Files.isDirectory(root)) {
+                logger.debug("Did not find a directory at " + root);
+                continue;
+            }
+
+            Map<String, Set<File>> found = new HashMap<String, Set<File>>();
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.filter(p -> p.getFileName().toString().endsWith(".java") && Files.isRegularFile(p))
+                .forEach(p -> {
+                    String pkg = qualify(root.relativize(p.getParent()));
+                    String name = p.getFileName().toString();
+                    name = name.substring(0, name.length() - ".java".length());
+                    File f = p.toFile();
+                    if (!classes.containsKey(qualify(pkg, name))) classes.put(qualify(pkg, name), f);
+                    found.computeIfAbsent(pkg, k -> new HashSet<File>()).add(f);
+                });
+            } catch (IOException | UncheckedIOException e) {
+                logger.warn("Unable to index input location " + root + ". " + e.getMessage());
+            }
+
+            // A package is taken whole from the first location containing it, never merged across locations.
+            for (Map.Entry<String, Set<File>> e : found.entrySet()) {
+                if (!packages.containsKey(e.getKey())) packages.put(e.getKey(), e.getValue());
+            }
+        }
+
+        index = new Index(classes, packages);
+        logger.debug("Indexed " + classes.size() + " source files in " + packages.size() + " packages");
+    }
+
+    /** Starts a daemon thread which rebuilds the index whenever a source directory changes. */
+    public synchronized void watch() {
+        if (watcher != null) return;
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            for (Path root : roots) register(root);
+        } catch (IOException e) {
+            logger.warn("Unable to watch input locations. " + e.getMessage());
+            return;
+        }
+
+        Thread t = new Thread(() -> {
+            while (true) {
+                WatchKey key;
+                try {
+                    key = watcher.take();
+                } catch (InterruptedException | ClosedWatchServiceException e) {
+                    return;
+                }
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() != StandardWatchEventKinds.ENTRY_CREATE) continue;
+                    Path created = dir.resolve((Path) event.context());
+                    if (Files.isDirectory(created)) register(created);
+                }
+                key.reset();
+                rebuild();
+            }
+        }, "source-index-watcher");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void register(Path root) {
+        if (!Files.isDirectory(root)) return;
+        try (Stream<Path> dirs = Files.walk(root)) {
+            dirs.filter(Files::isDirectory).forEach(d -> {
+                try {
+                    d.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                               StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                } catch (IOException e) {
+                    logger.warn("Unable to watch " + d + ". " + e.getMessage());
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Unable to watch " + root + ". " + e.getMessage());
+        }
+    }
+
+    /** The class and package maps of one build, published together and never changed afterwards. */
+    private static final class Index {
+        final Map<String, File> classes;
+        final Map<String, Set<File>> packages;
+
+        Index(Map<String, File> classes, Map<String, Set<File>> packages) {
+            this.classes = Collections.unmodifiableMap(classes);
+            this.packages = Collections.unmodifiableMap(packages);
+        }
+    }
+
+    private static String qualify(Path relative) {
+        StringBuilder sb = new StringBuilder();
+        for (Path p : relative) {
+            if (p.toString().isEmpty()) continue;
+            if (sb.length() > 0) sb.append('.');
+            sb.append(p.toString());
+        }
+        return sb.toString();
+    }
+
+    private static String qualify(String pkg, String name) {
+        return pkg.isEmpty() ? name : pkg + "." + name;
+    }
+
+    private static List<Path> loadInputLocations() {
+        List<Path> roots = new ArrayList<Path>();
+        for (String l : XtcProps.getList("input.locations")) {
+            roots.add(Paths.get(System.getProperty("user.dir"), l.split("/")));
+        }
+        return roots;
+    }
+}
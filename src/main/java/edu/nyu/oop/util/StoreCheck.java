@@ -0,0 +1,72 @@
+package edu.nyu.oop.util;
+
+import xtc.tree.GNode;
+import xtc.tree.Node;
+import xtc.tree.Visitor;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Finds the local arrays of a method whose exact run-time type is known, so Phase 4 can prove stores into
+ * them type-safe without the run-time checkStore.
+ * <p>
+ * A store into a reference array is only checked because arrays are covariant, an {@code Object[]} may
+ * really be an {@code A[]}. Matching the stored value's static type against the array's declared component
+ * type therefore proves nothing, it is the run-time component type that matters. That type is known for
+ * a local that is only ever assigned {@code new C[n]}, the component is then exactly C.
+ * <p>
+ * This has to see the method before Phase 4 rewrites it.
+ */
+public class StoreCheck {
+
+    /**
+     * @param method a MethodDeclaration node
+     * @return local one-dimensional arrays mapped to the simple name of their exact component class
+     */
+    public static HashMap<String, String> exactArrays(GNode method) {
+        final HashMap<String, String> exact = new HashMap<String, String>();
+        final Set<String> rejected = new HashSet<String>();
+        if (method.getNode(7) == null) return exact;
+
+        new Visitor() {
+            public void visitDeclarator(GNode n) {
+                String name = n.getString(0);
+                String component = allocatedClass(n.get(2));
+
+                // a second local of the same name could have another type, give up on both
+                if (component == null || exact.containsKey(name)) rejected.add(name);
+                else exact.put(name, component);
+                visit(n);
+            }
+
+            public void visitExpression(GNode n) {
+                Node target = n.getNode(0);
+                if (target.hasName("PrimaryIdentifier")) {
+                    String component = allocatedClass(n.get(2));
+                    String name = target.getString(0);
+                    if (component == null || !component.equals(exact.get(name))) rejected.add(name);
+                }
+                visit(n);
+            }
+
+            public void visit(Node n) {
+                for (Object o : n) if (o instanceof Node) dispatch((Node) o);
+            }
+        } .dispatch(method.getNode(7));
+
+        for (String name : rejected) exact.remove(name);
+        return exact;
+    }
+
+    /** The class C of an allocation {@code new C[n]}, null for anything else. */
+    private static String allocatedClass(Object o) {
+        if (!(o instanceof Node) || !((Node) o).hasName("NewArrayExpression")) return null;
+        Node n = (Node) o;
+        if (!n.getNode(0).hasName("QualifiedIdentifier") || n.getNode(1).size() != 1 || n.get(2) != null) return null;
+
+        Node type = n.getNode(0);
+        return type.getString(type.size() - 1);
+    }
+}
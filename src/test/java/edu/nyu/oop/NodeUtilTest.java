@@ -41,6 +41,14 @@ public class NodeUtilTest {
         testDuplicate(node, duplicatedNode);
     }
 
+    @Test
+    public void testParseJavaFileReusesSourceBuffer() {
+        // parsing a larger file and then the same file again must not leak characters between parses
+        XtcTestUtils.loadTestFile("src/test/java/edu/nyu/oop/Phase2Test.java");
+        GNode again = (GNode) XtcTestUtils.loadTestFile("src/test/java/edu/nyu/oop/XtcTestUtils.java");
+        assertEquals("Reparsed AST is identical", node, again);
+    }
+
     private void testDuplicate(GNode a, GNode b) {
         assertEquals("GNodes hold the same data", a, b);
         assertNotSame("GNodes are different locations in memory", a, b);
@@ -41,6 +41,45 @@ public class Phase2Test {
         assertTrue("OBJECT", objList.get(0).name.equals("Object"));
         assertTrue("STRING", objList.get(1).name.equals("String"));
         assertTrue("CLASS", objList.get(2).name.equals("Class"));
+
+        Phase2.ObjectRepList other = Phase2.initializeRepList();
+        assertNotSame("Fresh list", objList, other);
+        assertSame("Shared Object", objList.get(0), other.get(0));
+        assertTrue("Prelude", Phase2.isPrelude(other.get(2)));
+    }
+
+    @Test
+    public void testPreludeUnchanged() {
+        Phase2.ObjectRepList prelude = Phase2.initializeRepList();
+        int objectVFields = prelude.get(0).vtable.fields.size();
+        int stringFields = prelude.get(1).classRep.fields.size();
+
+        Phase2.runPhase2(node);
+
+        assertTrue("Object VTable", prelude.get(0).vtable.fields.size() == objectVFields);
+        assertTrue("String Fields", prelude.get(1).classRep.fields.size() == stringFields);
+        assertSame("String Parent", prelude.get(0), prelude.get(1).parent);
+    }
+
+    @Test
+    public void testVTableTargets() {
+        Phase2.Hierarchy hierarchy = new Phase2.Hierarchy();
+        Phase2.runPhase2(node, hierarchy);
+
+        assertTrue("A toString", hierarchy.vtableTargets.get("A").get("toString").equals("Object"));
+        assertTrue("B m", hierarchy.vtableTargets.get("B").get("m").equals("B"));
+        assertTrue("C m", hierarchy.vtableTargets.get("C").get("m").equals("C"));
+        assertFalse("No __is_a", hierarchy.vtableTargets.get("C").containsKey("__is_a"));
+    }
+
+    @Test
+    public void testThisCalls() {
+        Phase2.Hierarchy hierarchy = new Phase2.Hierarchy();
+        Phase2.runPhase2(node, hierarchy);
+
+        assertTrue("A <init>", hierarchy.thisCalls.get("A").get("<init>").isEmpty());
+        assertNotNull("B m", hierarchy.thisCalls.get("B").get("m"));
+        assertTrue("C m", hierarchy.thisCalls.get("C").get("m").isEmpty());
     }
 
     @Test
@@ -83,37 +122,37 @@ public class Phase2Test {
 
         List<Field> fields = filled.get(0).vtable.fields;
 
-        assertTrue("IS A Modifier",fields.get(0).accessModifier.equals("public"));
+        assertTrue("IS A Modifier",fields.get(0).accessModifier == Modifier.PUBLIC);
         assertTrue("IS A fieldName",fields.get(0).fieldName.equals("__is_a"));
         assertTrue("IS A fieldType",fields.get(0).fieldType.equals("Class"));
         assertTrue("IS A inheritedFrom",fields.get(0).inheritedFrom.equals(""));
         assertTrue("IS A Initial",fields.get(0).initial.equals(""));
 
-        assertTrue("DELETE Modifier",fields.get(1).accessModifier.equals("public"));
+        assertTrue("DELETE Modifier",fields.get(1).accessModifier == Modifier.PUBLIC);
         assertTrue("DELETE fieldName",fields.get(1).fieldName.equals("*__delete"));
         assertTrue("DELETE fieldType",fields.get(1).fieldType.equals("void"));
         assertTrue("DELETE inheritedFrom",fields.get(1).inheritedFrom.equals(""));
         assertTrue("DELETE Initial",fields.get(1).initial.equals("__Object*"));
 
-        assertTrue("HASHCODE Modifier",fields.get(2).accessModifier.equals("public"));
+        assertTrue("HASHCODE Modifier",fields.get(2).accessModifier == Modifier.PUBLIC);
         assertTrue("HASHCODE fieldName",fields.get(2).fieldName.equals("*hashCode"));
         assertTrue("HASHCODE fieldType",fields.get(2).fieldType.equals("int32_t"));
         assertTrue("HASHCODE inheritedFrom",fields.get(2).inheritedFrom.equals(""));
         assertTrue("HASHCODE Initial",fields.get(2).initial.equals("Object"));
 
-        assertTrue("EQUALS Modifier",fields.get(3).accessModifier.equals("public"));
+        assertTrue("EQUALS Modifier",fields.get(3).accessModifier == Modifier.PUBLIC);
         assertTrue("EQUALS fieldName",fields.get(3).fieldName.equals("*equals"));
         assertTrue("EQUALS fieldType",fields.get(3).fieldType.equals("bool"));
         assertTrue("EQUALS inheritedFrom",fields.get(3).inheritedFrom.equals(""));
         assertTrue("EQUALS Initial",fields.get(3).initial.equals("Object, Object"));
 
-        assertTrue("GETCLASS Modifier",fields.get(4).accessModifier.equals("public"));
+        assertTrue("GETCLASS Modifier",fields.get(4).accessModifier == Modifier.PUBLIC);
         assertTrue("GETCLASS fieldName",fields.get(4).fieldName.equals("*getClass"));
         assertTrue("GETCLASS fieldType",fields.get(4).fieldType.equals("Class"));
         assertTrue("GETCLASS inheritedFrom",fields.get(4).inheritedFrom.equals(""));
         assertTrue("GETCLASS Initial",fields.get(4).initial.equals("Object"));
 
-        assertTrue("TOSTRING Modifier",fields.get(5).accessModifier.equals("public"));
+        assertTrue("TOSTRING Modifier",fields.get(5).accessModifier == Modifier.PUBLIC);
         assertTrue("TOSTRING fieldName",fields.get(5).fieldName.equals("*toString"));
         assertTrue("TOSTRING fieldType",fields.get(5).fieldType.equals("String"));
         assertTrue("TOSTRING inheritedFrom",fields.get(5).inheritedFrom.equals(""));
@@ -122,36 +161,36 @@ public class Phase2Test {
 
         List<VMethod> methods = filled.get(0).vtable.methods;
 
-        assertTrue("IS A VMethod Modifier", methods.get(0).accessModifier.equals("public"));
+        assertTrue("IS A VMethod Modifier", methods.get(0).accessModifier == Modifier.PUBLIC);
         assertTrue("IS A VMethod Name", methods.get(0).name.equals("__is_a"));
         assertTrue("IS A VMethod Initial",methods.get(0).initial.equals("(__Object::__class())"));
 
-        assertTrue("DELETE VMethod Modifier", methods.get(1).accessModifier.equals("public"));
+        assertTrue("DELETE VMethod Modifier", methods.get(1).accessModifier == Modifier.PUBLIC);
         assertTrue("DELETE VMethod Name", methods.get(1).name.equals("__delete"));
         assertTrue("DELETE VMethod Initial",methods.get(1).initial.equals("(&__rt::__delete<__Object>)"));
 
-        assertTrue("HASHCODE VMethod Modifier", methods.get(2).accessModifier.equals("public"));
+        assertTrue("HASHCODE VMethod Modifier", methods.get(2).accessModifier == Modifier.PUBLIC);
         assertTrue("HASHCODE VMethod Name", methods.get(2).name.equals("hashCode"));
         assertTrue("HASHCODE VMethod Initial",methods.get(2).initial.equals("(&__Object::__hashCode)"));
 
-        assertTrue("EQUALS VMethod Modifier", methods.get(3).accessModifier.equals("public"));
+        assertTrue("EQUALS VMethod Modifier", methods.get(3).accessModifier == Modifier.PUBLIC);
         assertTrue("EQUALS VMethod Name", methods.get(3).name.equals("equals"));
         assertTrue("EQUALS VMethod Initial",methods.get(3).initial.equals("(&__Object::__equals)"));
 
-        assertTrue("GETCLASS VMethod Modifier", methods.get(4).accessModifier.equals("public"));
+        assertTrue("GETCLASS VMethod Modifier", methods.get(4).accessModifier == Modifier.PUBLIC);
         assertTrue("GETCLASS VMethod Name", methods.get(4).name.equals("getClass"));
         assertTrue("GETCLASS VMethod Initial",methods.get(4).initial.equals("(&__Object::__getClass)"));
 
-        assertTrue("TOSTRING VMethod Modifier", methods.get(5).accessModifier.equals("public"));
+        assertTrue("TOSTRING VMethod Modifier", methods.get(5).accessModifier == Modifier.PUBLIC);
         assertTrue("TOSTRING VMethod Name", methods.get(5).name.equals("toString"));
         assertTrue("TOSTRING VMethod Initial",methods.get(5).initial.equals("(&__Object::__toString)"));
 
         List<Constructor> constructorObj = filled.get(0).classRep.constructors;
-        assertTrue("OBJECT Modifier", constructorObj.get(0).accessModifier.equals("public"));
+        assertTrue("OBJECT Modifier", constructorObj.get(0).accessModifier == Modifier.PUBLIC);
         assertTrue("OBJECT Name", constructorObj.get(0).name.equals("Object"));
 
         List<Constructor> constructorInit = filled.get(1).classRep.constructors;
-        assertTrue("OBJECT Modifier", constructorInit.get(0).accessModifier.equals("public"));
+        assertTrue("OBJECT Modifier", constructorInit.get(0).accessModifier == Modifier.PUBLIC);
         assertTrue("OBJECT Name", constructorInit.get(0).name.equals("init"));
         assertTrue("OBJECT INIT NAME", constructorInit.get(0).parameters.get(0).type.equals("String"));
         assertTrue("OBJECT INIT NAME", constructorInit.get(0).parameters.get(0).name.equals("__this"));
@@ -198,7 +237,7 @@ public class Phase2Test {
 
     @Test
     public void testBuildFieldNode() {
-        Field field = new Field("mod", false, "String", "dus", "d");
+        Field field = new Field(Modifier.PUBLIC, false, "String", "dus", "d");
         Node fieldNode = Phase2.buildFieldNode(field);
         assertTrue("IsStatic", fieldNode.get(0).toString().equals("IsStatic(\"false\")"));
         assertTrue("FieldType", fieldNode.get(1).toString().equals("FieldType(\"String\")"));
@@ -32,12 +32,13 @@ public class Phase4Test {
         Phase4 phase4 = new Phase4(runtime, childrenToParents, inits);
         ArrayList<Node> cppAsts = new ArrayList<Node>();
 
+        Phase2.Hierarchy hierarchy = new Phase2.Hierarchy();
+
         for (Node javaAst : javaAsts) {
-            Phase2 phase2 = new Phase2();
-            Node cppAst = Phase2.runPhase2(javaAst);
+            Node cppAst = Phase2.runPhase2(javaAst, hierarchy);
             cppAsts.add(cppAst);
-            childrenToParents.putAll(Phase2.childrenToParents);
         }
+        childrenToParents.putAll(hierarchy.childrenToParents);
     }
 
     @Test
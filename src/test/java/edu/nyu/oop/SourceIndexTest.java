@@ -0,0 +1,32 @@
+package edu.nyu.oop;
+
+import edu.nyu.oop.util.SourceIndex;
+
+import java.io.File;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SourceIndexTest {
+
+    @Test
+    public void testFindClass() {
+        File f = SourceIndex.get().findClass("inputs.test000.Test000");
+        assertEquals("Test000.java", f.getName());
+        assertTrue(f.isFile());
+
+        assertNull(SourceIndex.get().findClass("inputs.test000.NoSuchClass"));
+    }
+
+    @Test
+    public void testFindPackage() {
+        Set<File> files = SourceIndex.get().findPackage("inputs.testPackage");
+        assertEquals(2, files.size());
+
+        assertNull(SourceIndex.get().findPackage("inputs.noSuchPackage"));
+    }
+}
@@ -0,0 +1,49 @@
+package edu.nyu.oop;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import edu.nyu.oop.util.XtcProps;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import static org.junit.Assert.*;
+
+public class StreamingTranslatorTest {
+    private static Logger logger = org.slf4j.LoggerFactory.getLogger(StreamingTranslatorTest.class);
+
+    private static final String[] OUTPUTS = { "output.h", "output.cpp", "main.cpp" };
+
+    private String outputLocation = XtcProps.get("output.location");
+
+    private String[] translate(String mode, File source) throws IOException {
+        for (String name : OUTPUTS) {
+            new File(outputLocation + name).delete();
+        }
+        new Boot().run(new String[] { "-no-exit", mode, source.getPath() });
+
+        String[] outputs = new String[OUTPUTS.length];
+        for (int i = 0; i < OUTPUTS.length; i++) {
+            outputs[i] = new String(Files.readAllBytes(new File(outputLocation + OUTPUTS[i]).toPath()), StandardCharsets.UTF_8);
+        }
+        return outputs;
+    }
+
+    @Test
+    public void testSameOutputAsTranslate() throws IOException {
+        for (int i = 0; i <= 50; i++) {
+            String test = String.format("test%03d", i);
+            File source = new File("src/test/java/inputs/" + test + "/T" + test.substring(1) + ".java");
+            logger.debug("Comparing the translations of " + source);
+
+            String[] batch = translate("-translate", source);
+            String[] streamed = translate("-streamTranslate", source);
+
+            for (int j = 0; j < OUTPUTS.length; j++) {
+                assertEquals(test + " " + OUTPUTS[j], batch[j], streamed[j]);
+            }
+        }
+    }
+}
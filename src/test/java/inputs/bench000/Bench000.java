@@ -0,0 +1,30 @@
+package inputs.bench000;
+
+// Allocation heavy: short-lived linked lists, built and walked over and over.
+class Link {
+    Link next;
+    int value;
+
+    public Link(int value, Link next) {
+        this.value = value;
+        this.next = next;
+    }
+}
+
+public class Bench000 {
+    public static void main(String[] args) {
+        int sum = 0;
+        for (int round = 0; round < 200; round++) {
+            Link list = null;
+            for (int i = 0; i < 10000; i++) {
+                list = new Link(i, list);
+            }
+            Link walk = list;
+            for (int i = 0; i < 10000; i++) {
+                sum = sum + walk.value;
+                walk = walk.next;
+            }
+        }
+        System.out.println(sum);
+    }
+}
@@ -0,0 +1,56 @@
+package inputs.bench001;
+
+// Dispatch heavy: virtual calls through an array of shapes in a tight loop.
+class Shape {
+    public int area() {
+        return 0;
+    }
+}
+
+class Square extends Shape {
+    int side;
+
+    public Square(int side) {
+        this.side = side;
+    }
+
+    public int area() {
+        return side * side;
+    }
+}
+
+class Rectangle extends Shape {
+    int width;
+    int height;
+
+    public Rectangle(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public int area() {
+        return width * height;
+    }
+}
+
+public class Bench001 {
+    public static void main(String[] args) {
+        Shape[] shapes = new Shape[1000];
+        for (int i = 0; i < 1000; i++) {
+            if (i % 2 == 0) {
+                shapes[i] = new Square(i % 7);
+            }
+            if (i % 2 == 1) {
+                shapes[i] = new Rectangle(i % 5, i % 3);
+            }
+        }
+        int total = 0;
+        for (int round = 0; round < 5000; round++) {
+            for (int i = 0; i < 1000; i++) {
+                Shape shape = shapes[i];
+                total = total + shape.area();
+            }
+        }
+        System.out.println(total);
+    }
+}
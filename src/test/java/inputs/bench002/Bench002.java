@@ -0,0 +1,40 @@
+package inputs.bench002;
+
+// Array heavy: a matrix product and a sieve, bounds checked on every access.
+public class Bench002 {
+    public static void main(String[] args) {
+        int n = 200;
+        int[][] a = new int[n][n];
+        int[][] b = new int[n][n];
+        int[][] c = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                a[i][j] = i + j;
+                b[i][j] = i - j;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                int s = 0;
+                for (int k = 0; k < n; k++) {
+                    s = s + a[i][k] * b[k][j];
+                }
+                c[i][j] = s;
+            }
+        }
+        System.out.println(c[n - 1][n - 1]);
+
+        int limit = 2000000;
+        int[] composite = new int[limit];
+        int primes = 0;
+        for (int i = 2; i < limit; i++) {
+            if (composite[i] == 0) {
+                primes = primes + 1;
+                for (int j = i + i; j < limit; j = j + i) {
+                    composite[j] = 1;
+                }
+            }
+        }
+        System.out.println(primes);
+    }
+}
@@ -0,0 +1,19 @@
+package inputs.bench003;
+
+// String heavy: concatenations of literals and numbers in a loop.
+public class Bench003 {
+    public static void main(String[] args) {
+        for (int i = 0; i < 300000; i++) {
+            String s = "item " + i + " of " + 300000;
+            if (i % 50000 == 0) {
+                System.out.println(s);
+            }
+        }
+
+        String line = "";
+        for (int i = 0; i < 2000; i++) {
+            line = line + "x";
+        }
+        System.out.println(line);
+    }
+}
@@ -0,0 +1,36 @@
+package inputs.bench004;
+
+// Cycle heavy: doubly linked rings dropped after use, only freed with -cycleCollector.
+class Ring {
+    Ring next;
+    Ring prev;
+    int value;
+
+    public Ring(int value) {
+        this.value = value;
+    }
+}
+
+public class Bench004 {
+    public static void main(String[] args) {
+        int sum = 0;
+        for (int round = 0; round < 200; round++) {
+            Ring head = new Ring(0);
+            Ring tail = head;
+            for (int i = 1; i < 5000; i++) {
+                Ring ring = new Ring(i);
+                tail.next = ring;
+                ring.prev = tail;
+                tail = ring;
+            }
+            tail.next = head;
+            head.prev = tail;
+            Ring walk = head;
+            for (int i = 0; i < 5000; i++) {
+                sum = sum + walk.value;
+                walk = walk.prev;
+            }
+        }
+        System.out.println(sum);
+    }
+}
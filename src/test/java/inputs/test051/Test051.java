@@ -0,0 +1,19 @@
+package inputs.test051;
+
+public class Test051 {
+    public static void main(String[] args) {
+        double d = 2.0;
+        double third = 1.0 / 3;
+        double big = 12345678.0;
+        System.out.println("d=" + d + " third=" + third + " big=" + big);
+
+        double small = 0.0001;
+        double tenth = 0.1;
+        double negative = -1.5;
+        System.out.println("small=" + small + " tenth=" + tenth + " negative=" + negative);
+
+        float f = 0.1f;
+        float fThird = 1.0f / 3;
+        System.out.println("f=" + f + " fThird=" + fThird);
+    }
+}
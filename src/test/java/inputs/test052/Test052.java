@@ -0,0 +1,32 @@
+package inputs.test052;
+
+class A {
+    String name;
+
+    A(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+}
+
+public class Test052 {
+    public static void main(String[] args) {
+        String[] names = new String[2];
+        names[0] = "first";
+        names[1] = "second";
+        System.out.println(names[0] + 1);
+        System.out.println(names[1] + 2 + 3);
+
+        A a = new A("a");
+        System.out.println(a.getName() + 4);
+        System.out.println(5 + 6 + a.getName());
+        System.out.println(a.name + 7);
+
+        char c = 'x';
+        System.out.println(c + a.getName() + c);
+        System.out.println(names[0] + c);
+    }
+}
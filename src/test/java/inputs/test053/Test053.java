@@ -0,0 +1,54 @@
+package inputs.test053;
+
+class Node {
+    int value;
+    Node next;
+
+    Node(int value) {
+        this.value = value;
+    }
+}
+
+public class Test053 {
+    public static void main(String[] args) {
+        // shared references keep an object alive after one of them is dropped
+        Node a = new Node(1);
+        Node b = a;
+        a = null;
+        System.out.println(b.value);
+
+        // a chain only held by its head
+        Node head = new Node(2);
+        head.next = new Node(3);
+        head.next.next = new Node(4);
+        Node third = head.next.next;
+        head = head.next;
+        System.out.println(head.value);
+        System.out.println(head.next.value);
+        head = null;
+        System.out.println(third.value);
+
+        // objects held by an array outlive the locals that made them
+        Node[] nodes = new Node[3];
+        for (int i = 0; i < nodes.length; i++) {
+            Node n = new Node(i * 10);
+            nodes[i] = n;
+        }
+        nodes[1] = nodes[2];
+        nodes[2] = null;
+        for (int i = 0; i < 2; i++) {
+            System.out.println(nodes[i].value);
+        }
+
+        // null references are plain values
+        Node empty = null;
+        Node other = empty;
+        if (other == null) {
+            System.out.println("null");
+        }
+
+        // reassignment to itself
+        b = b;
+        System.out.println(b.value);
+    }
+}
@@ -0,0 +1,58 @@
+package inputs.test054;
+
+class Point {
+    int x;
+    int y;
+
+    Point(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    // other is only read, so it is borrowed
+    Point(Point other, int dx) {
+        this.x = other.x + dx;
+        this.y = other.y;
+    }
+}
+
+class Holder {
+    Point kept;
+    Point current;
+
+    // p escapes into the fields, so it is passed by value
+    Holder(Point p) {
+        kept = p;
+        current = p;
+    }
+
+    // p is only read, so it is borrowed
+    static int area(Point p) {
+        return p.x * p.y;
+    }
+
+    // the field passed as p is replaced while p is still read
+    static int replaceAndRead(Holder h, Point p) {
+        h.current = new Point(100, 200);
+        return p.x + p.y;
+    }
+}
+
+public class Test054 {
+    public static void main(String[] args) {
+        Point p = new Point(3, 4);
+        Holder h = new Holder(p);
+        p = null;
+        System.out.println(Holder.area(h.kept));
+
+        h.kept = new Point(7, 8);
+        System.out.println(Holder.replaceAndRead(h, h.kept));
+        h.current = new Point(1, 2);
+        System.out.println(Holder.replaceAndRead(h, h.current));
+        System.out.println(h.current.x);
+
+        Point moved = new Point(h.kept, 10);
+        System.out.println(moved.x);
+        System.out.println(Holder.area(new Point(5, 6)));
+    }
+}
@@ -0,0 +1,58 @@
+package inputs.test055;
+
+class A {
+    String name() {
+        return "A.name";
+    }
+
+    String only() {
+        return "A.only";
+    }
+
+    String deep() {
+        return "A.deep";
+    }
+}
+
+class B extends A {
+    String name() {
+        return "B.name";
+    }
+}
+
+class C extends B {
+    String deep() {
+        return "C.deep";
+    }
+}
+
+class D {
+    String alone() {
+        return "D.alone";
+    }
+}
+
+public class Test055 {
+    public static void main(String[] args) {
+        A a = new A();
+        A ab = new B();
+        A ac = new C();
+        B bc = new C();
+        D d = new D();
+
+        // overridden below A, so dispatched
+        System.out.println(a.name());
+        System.out.println(ab.name());
+        System.out.println(ac.name());
+
+        // never overridden, so called directly
+        System.out.println(ab.only());
+        System.out.println(bc.only());
+        System.out.println(d.alone());
+
+        // overridden only two levels down
+        System.out.println(ab.deep());
+        System.out.println(ac.deep());
+        System.out.println(bc.deep());
+    }
+}
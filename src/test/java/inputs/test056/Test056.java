@@ -0,0 +1,54 @@
+package inputs.test056;
+
+public class Test056 {
+    public static void main(String[] args) {
+        int[] a = new int[10];
+
+        // canonical loops, the accesses need no checks
+        for (int i = 0; i < a.length; i++) {
+            a[i] = i * i;
+        }
+        int sum = 0;
+        for (int i = 2; i < a.length; i++) {
+            sum = sum + a[i];
+        }
+        System.out.println(sum);
+
+        // the body changes i, so the accesses keep their checks
+        int skipped = 0;
+        for (int i = 0; i < a.length; i++) {
+            skipped = skipped + a[i];
+            i = i + 1;
+        }
+        System.out.println(skipped);
+
+        // the body replaces the array, so the accesses keep their checks
+        int[] b = new int[3];
+        int mixed = 0;
+        for (int i = 0; i < b.length; i++) {
+            mixed = mixed + b[i] + i;
+            b = a;
+        }
+        System.out.println(mixed);
+
+        // rows of a two-dimensional array
+        int[][] grid = new int[4][3];
+        int cells = 0;
+        for (int k = 0; k < grid.length; k++) {
+            for (int j = 0; j < grid[k].length; j++) {
+                grid[k][j] = k + j;
+                cells = cells + grid[k][j];
+            }
+        }
+        System.out.println(cells);
+
+        // an array of objects
+        String[] words = new String[3];
+        words[0] = "x";
+        words[1] = "y";
+        words[2] = "z";
+        for (int i = 0; i < words.length; i++) {
+            System.out.println(words[i]);
+        }
+    }
+}
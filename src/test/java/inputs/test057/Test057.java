@@ -0,0 +1,54 @@
+package inputs.test057;
+
+class A {
+    String name() {
+        return "A";
+    }
+}
+
+class B extends A {
+    String name() {
+        return "B";
+    }
+}
+
+public class Test057 {
+    public static void main(String[] args) {
+        A a = new A();
+        B b = new B();
+
+        // a local only assigned new A[n] holds A or its subclasses without checks
+        A[] exact = new A[3];
+        exact[0] = a;
+        exact[1] = b;
+        exact[2] = null;
+        A first = exact[0];
+        A second = exact[1];
+        System.out.println(first.name());
+        System.out.println(second.name());
+
+        // String has no subclasses
+        String[] strings = new String[2];
+        strings[0] = "s";
+        strings[1] = strings[0];
+        System.out.println(strings[1]);
+
+        // an A[] variable may hold a B[], so its stores are checked
+        A[] covariant = new B[2];
+        covariant[0] = b;
+        covariant[1] = null;
+        A stored = covariant[0];
+        System.out.println(stored.name());
+
+        Object[] objects = new Object[2];
+        objects[0] = b;
+        objects[1] = "o";
+        System.out.println(objects[1]);
+
+        A[] reassigned = new A[2];
+        reassigned = covariant;
+        reassigned[1] = b;
+        A last = reassigned[1];
+        System.out.println(last.name());
+    }
+}
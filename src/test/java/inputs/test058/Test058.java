@@ -0,0 +1,97 @@
+package inputs.test058;
+
+class L0 {
+    String name() {
+        return "L0";
+    }
+}
+
+class L1 extends L0 {
+    String name() {
+        return "L1";
+    }
+}
+
+class L2 extends L1 {
+    String name() {
+        return "L2";
+    }
+}
+
+class L3 extends L2 {
+    String name() {
+        return "L3";
+    }
+}
+
+class L4 extends L3 {
+    String name() {
+        return "L4";
+    }
+}
+
+class L5 extends L4 {
+    String name() {
+        return "L5";
+    }
+}
+
+class L6 extends L5 {
+    String name() {
+        return "L6";
+    }
+}
+
+class L7 extends L6 {
+    String name() {
+        return "L7";
+    }
+}
+
+class L8 extends L7 {
+    String name() {
+        return "L8";
+    }
+}
+
+class L9 extends L8 {
+    String name() {
+        return "L9";
+    }
+}
+
+public class Test058 {
+    public static void main(String[] args) {
+        Object o = new L9();
+
+        // casts up to shallow classes answer from the display
+        L0 l0 = (L0) o;
+        System.out.println(l0.name());
+        L4 l4 = (L4) o;
+        System.out.println(l4.name());
+        L7 l7 = (L7) o;
+        System.out.println(l7.name());
+
+        // classes deeper than the display walk the hierarchy
+        L8 l8 = (L8) o;
+        System.out.println(l8.name());
+        L9 l9 = (L9) o;
+        System.out.println(l9.name());
+
+        // a shallow object cast to its own class
+        Object shallow = new L2();
+        L2 l2 = (L2) shallow;
+        System.out.println(l2.name());
+
+        // array stores ask the same question of the component class
+        L5[] fives = new L8[2];
+        L9 deep = new L9();
+        fives[0] = deep;
+        L5 stored = fives[0];
+        System.out.println(stored.name());
+        Object[] objects = new L3[1];
+        objects = new L6[1];
+        objects[0] = l9;
+        System.out.println(objects.length);
+    }
+}
@@ -0,0 +1,66 @@
+package inputs.test059;
+
+class A {
+}
+
+class B extends A {
+}
+
+class C {
+}
+
+public class Test059 {
+    public static void main(String[] args) {
+        Object o = new B();
+        if (o instanceof A) {
+            System.out.println("B is an A");
+        }
+        if (o instanceof B) {
+            System.out.println("B is a B");
+        }
+        if (o instanceof C) {
+            System.out.println("B is a C");
+        }
+
+        Object none = null;
+        if (none instanceof A) {
+            System.out.println("null is an A");
+        }
+
+        int[] ints = new int[2];
+        Object intArray = ints;
+        if (intArray instanceof int[]) {
+            System.out.println("int[] is an int[]");
+        }
+        if (intArray instanceof Object[]) {
+            System.out.println("int[] is an Object[]");
+        }
+
+        B[] bs = new B[1];
+        Object bArray = bs;
+        if (bArray instanceof Object[]) {
+            System.out.println("B[] is an Object[]");
+        }
+        if (bArray instanceof A[]) {
+            System.out.println("B[] is an A[]");
+        }
+        if (bArray instanceof C[]) {
+            System.out.println("B[] is a C[]");
+        }
+
+        A[] as = new A[1];
+        Object aArray = as;
+        if (aArray instanceof B[]) {
+            System.out.println("A[] is a B[]");
+        }
+
+        int[][] grid = new int[2][2];
+        Object gridArray = grid;
+        if (gridArray instanceof Object[]) {
+            System.out.println("int[][] is an Object[]");
+        }
+        if (gridArray instanceof int[][]) {
+            System.out.println("int[][] is an int[][]");
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package inputs.test060;
+
+class Pair {
+    int first;
+    Pair next;
+
+    Pair(int first, Pair next) {
+        this.first = first;
+        this.next = next;
+    }
+}
+
+public class Test060 {
+    public static void main(String[] args) {
+        // short lived objects, each dropped by the next iteration
+        int total = 0;
+        for (int i = 0; i < 100000; i++) {
+            Pair p = new Pair(i, null);
+            total = total + p.first % 7;
+        }
+        System.out.println(total);
+
+        // a long list kept alive to the end
+        Pair list = null;
+        for (int i = 0; i < 1000; i++) {
+            list = new Pair(i, list);
+        }
+        int firsts = 0;
+        Pair p = list;
+        for (int i = 0; i < 1000; i++) {
+            firsts = firsts + p.first;
+            p = p.next;
+        }
+        System.out.println(firsts);
+
+        // arrays and strings, whose storage is freed even in the arena
+        int sum = 0;
+        for (int i = 0; i < 1000; i++) {
+            int[] a = new int[100];
+            a[99] = i;
+            sum = sum + a[99];
+        }
+        System.out.println(sum);
+        String s = "";
+        for (int i = 0; i < 100; i++) {
+            s = "x" + i;
+        }
+        System.out.println(s);
+    }
+}
@@ -0,0 +1,68 @@
+package inputs.test061;
+
+class Small {
+    int value;
+
+    Small(int value) {
+        this.value = value;
+    }
+}
+
+class Large {
+    int a;
+    int b;
+    int c;
+    int d;
+    Small small;
+
+    Large(int a, Small small) {
+        this.a = a;
+        this.b = a + 1;
+        this.c = a + 2;
+        this.d = a + 3;
+        this.small = small;
+    }
+}
+
+public class Test061 {
+    public static void main(String[] args) {
+        // more objects than a slab holds, every other one kept
+        Small[] kept = new Small[200];
+        for (int i = 0; i < 400; i++) {
+            Small s = new Small(i);
+            if (i % 2 == 0) {
+                kept[i / 2] = s;
+            }
+        }
+
+        // released objects come back from the free list of their own class
+        Large[] larges = new Large[100];
+        for (int i = 0; i < 100; i++) {
+            Small dropped = new Small(-1);
+            larges[i] = new Large(i, kept[i]);
+        }
+
+        int sum = 0;
+        for (int i = 0; i < kept.length; i++) {
+            sum = sum + kept[i].value;
+        }
+        System.out.println(sum);
+
+        int check = 0;
+        for (int i = 0; i < larges.length; i++) {
+            Large l = larges[i];
+            check = check + l.a + l.b + l.c + l.d + l.small.value;
+        }
+        System.out.println(check);
+
+        // emptying the arrays returns everything to the pools, then it is reused
+        for (int i = 0; i < larges.length; i++) {
+            larges[i] = null;
+        }
+        for (int i = 0; i < 100; i++) {
+            larges[i] = new Large(i * 2, null);
+        }
+        Large last = larges[99];
+        System.out.println(last.d);
+    }
+}
@@ -0,0 +1,81 @@
+package inputs.test062;
+
+class Counter {
+    int count;
+
+    Counter(int start) {
+        count = start;
+    }
+
+    void add(int n) {
+        count = count + n;
+    }
+
+    int get() {
+        return count;
+    }
+}
+
+class Registry {
+    Counter last;
+    Leaky leaked;
+
+    Counter make() {
+        Counter made = new Counter(7);
+        return made;
+    }
+}
+
+class Leaky {
+    int id;
+
+    Leaky(int id) {
+        this.id = id;
+    }
+
+    void register(Registry registry) {
+        registry.leaked = this;
+    }
+}
+
+public class Test062 {
+    public static void main(String[] args) {
+        Registry registry = new Registry();
+
+        // stays local, only its fields and methods are used
+        Counter local = new Counter(1);
+        local.add(2);
+        local.count = local.count * 10;
+        System.out.println(local.get());
+
+        // escapes into a field
+        Counter kept = new Counter(5);
+        registry.last = kept;
+
+        // escapes as a return value
+        Counter returned = null;
+        returned = registry.make();
+
+        // escapes through a method that stores this
+        Leaky leaky = new Leaky(9);
+        leaky.register(registry);
+
+        // the escaped objects outlive the locals that made them
+        kept = null;
+        leaky = null;
+        Counter last = registry.last;
+        System.out.println(last.get());
+        System.out.println(returned.get());
+        Leaky leaked = registry.leaked;
+        System.out.println(leaked.id);
+
+        // a local made in a loop is a new object every iteration
+        int total = 0;
+        for (int i = 0; i < 3; i++) {
+            Counter c = new Counter(i);
+            c.add(100);
+            total = total + c.get();
+        }
+        System.out.println(total);
+    }
+}
@@ -0,0 +1,51 @@
+package inputs.test063;
+
+class Greeter {
+    String greeting = "hello";
+
+    String greet() {
+        return "hello";
+    }
+}
+
+public class Test063 {
+    public static void main(String[] args) {
+        // equal literals are the same string, also across classes
+        String a = "hello";
+        String b = "hello";
+        if (a == b) {
+            System.out.println("same literal");
+        }
+        Greeter g = new Greeter();
+        if (g.greeting == a) {
+            System.out.println("same as the field initializer");
+        }
+        String greeted = null;
+        greeted = g.greet();
+        if (greeted == a) {
+            System.out.println("same as the returned literal");
+        }
+
+        // a built string is a new object
+        String suffix = "";
+        String concatenated = "hello" + suffix;
+        if (concatenated != a) {
+            System.out.println("concatenation makes a new string");
+        }
+
+        // a literal in a loop is the same object every iteration
+        String first = null;
+        int same = 0;
+        for (int i = 0; i < 1000; i++) {
+            String s = "loop";
+            if (i == 0) {
+                first = s;
+            }
+            if (s == first) {
+                same = same + 1;
+            }
+        }
+        System.out.println(same);
+        System.out.println(first);
+    }
+}
@@ -0,0 +1,66 @@
+package inputs.test064;
+
+class Box {
+}
+
+public class Test064 {
+    public static void main(String[] args) {
+        // the receivers are Objects, so the calls dispatch to String's methods
+        Object a = "hash";
+        Object built = "ha" + "sh";
+        Object longer = "hashes";
+        Object shorter = "has";
+        Object other = "hasH";
+
+        // equal text in different strings
+        System.out.println(a.hashCode());
+        System.out.println(built.hashCode());
+        if (a.equals(built)) {
+            System.out.println("hash equals ha + sh");
+        }
+
+        // the cached hash is returned again
+        int sum = 0;
+        for (int i = 0; i < 1000; i++) {
+            sum = sum + built.hashCode() % 11;
+        }
+        System.out.println(sum);
+
+        // differences found by the length, then by the hash, then by the bytes
+        if (a.equals(longer)) {
+            System.out.println("hash equals hashes");
+        }
+        if (a.equals(shorter)) {
+            System.out.println("hash equals has");
+        }
+        if (a.equals(other)) {
+            System.out.println("hash equals hasH");
+        }
+        Object aa = "Aa";
+        Object bb = "BB";
+        System.out.println(aa.hashCode());
+        System.out.println(bb.hashCode());
+        if (aa.equals(bb)) {
+            System.out.println("Aa equals BB");
+        }
+
+        // identity, null and other classes
+        if (a.equals(a)) {
+            System.out.println("hash equals itself");
+        }
+        Object none = null;
+        if (a.equals(none)) {
+            System.out.println("hash equals null");
+        }
+        Object box = new Box();
+        if (a.equals(box)) {
+            System.out.println("hash equals a box");
+        }
+
+        // the hash wraps around like an int
+        Object wide = "the quick brown fox jumps over the lazy dog";
+        System.out.println(wide.hashCode());
+        Object empty = "";
+        System.out.println(empty.hashCode());
+    }
+}
@@ -0,0 +1,23 @@
+package inputs.test065;
+
+public class Test065 {
+    public static void main(String[] args) {
+        // pieces of one line
+        System.out.print("a");
+        System.out.print(1);
+        System.out.print('c');
+        System.out.println();
+        System.out.println("whole line");
+
+        // a flush in the middle of a line
+        System.out.print("before flush ");
+        System.out.flush();
+        System.out.println("after flush");
+
+        // more than the 64 KiB buffer holds
+        for (int i = 0; i < 10000; i++) {
+            System.out.println("line " + i + " of the output that fills the buffer");
+        }
+        System.out.print("no newline at the end");
+    }
+}
@@ -0,0 +1,55 @@
+package inputs.test066;
+
+class A {
+}
+
+class B extends A {
+}
+
+public class Test066 {
+    public static void main(String[] args) {
+        A a = new A();
+        A b = new B();
+        A b2 = new B();
+
+        // every object of a class shares the one class object
+        Class ka = a.getClass();
+        Class kb = b.getClass();
+        Class kb2 = b2.getClass();
+        if (kb == kb2) {
+            System.out.println("one class object per class");
+        }
+        if (ka != kb) {
+            System.out.println("A and B have different class objects");
+        }
+        System.out.println(ka.getName());
+        System.out.println(kb.getName());
+
+        // the superclass is the parent's class object
+        Class parent = kb.getSuperclass();
+        if (parent == ka) {
+            System.out.println("B's superclass is A");
+        }
+        Class root = ka.getSuperclass();
+        System.out.println(root.getName());
+
+        // classes of the runtime
+        Object s = "string";
+        Class ks = s.getClass();
+        System.out.println(ks.getName());
+        int[] ints = new int[1];
+        Object array = ints;
+        Class kArray = array.getClass();
+        System.out.println(kArray.getName());
+
+        // asked for many times, the class is never rebuilt
+        int same = 0;
+        for (int i = 0; i < 1000; i++) {
+            A fresh = new B();
+            if (fresh.getClass() == kb) {
+                same = same + 1;
+            }
+        }
+        System.out.println(same);
+    }
+}
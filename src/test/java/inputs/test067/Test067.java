@@ -0,0 +1,68 @@
+package inputs.test067;
+
+public class Test067 {
+    public static void main(String[] args) {
+        // elements start zeroed, right after the header
+        int[] ints = new int[5];
+        long[] longs = new long[3];
+        double[] doubles = new double[3];
+        char[] chars = new char[4];
+        byte[] bytes = new byte[2];
+        short[] shorts = new short[2];
+        boolean[] flags = new boolean[2];
+        System.out.println(ints[4]);
+        System.out.println(longs[2]);
+        System.out.println("" + doubles[1]);
+        System.out.println(bytes[1] + shorts[1]);
+        if (flags[0] == false) {
+            System.out.println("false by default");
+        }
+
+        // writes and reads of every element type
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = i * 3;
+        }
+        longs[0] = 10000000000L;
+        doubles[2] = 0.25;
+        chars[0] = 'j';
+        chars[1] = 'a';
+        chars[2] = 'v';
+        chars[3] = 'a';
+        bytes[0] = 127;
+        shorts[0] = 32000;
+        flags[1] = true;
+        System.out.println(ints[4]);
+        System.out.println(longs[0]);
+        System.out.println("" + doubles[2]);
+        for (int i = 0; i < chars.length; i++) {
+            System.out.print(chars[i]);
+        }
+        System.out.println();
+        int byteValue = bytes[0];
+        System.out.println(byteValue);
+        System.out.println(shorts[0]);
+        if (flags[1]) {
+            System.out.println("set");
+        }
+
+        // empty and large arrays
+        int[] empty = new int[0];
+        System.out.println(empty.length);
+        int[] large = new int[100000];
+        large[99999] = 7;
+        int sum = 0;
+        for (int i = 0; i < large.length; i++) {
+            sum = sum + large[i];
+        }
+        System.out.println(sum);
+
+        // many arrays allocated and released
+        int total = 0;
+        for (int i = 0; i < 10000; i++) {
+            int[] temp = new int[16];
+            temp[15] = 1;
+            total = total + temp[15];
+        }
+        System.out.println(total);
+    }
+}
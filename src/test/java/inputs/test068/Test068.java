@@ -0,0 +1,51 @@
+package inputs.test068;
+
+public class Test068 {
+    public static void main(String[] args) {
+        // only indexed down to an element, so one block with -contiguousArrays
+        int[][] grid = new int[3][4];
+        for (int i = 0; i < grid.length; i++) {
+            for (int j = 0; j < grid[i].length; j++) {
+                grid[i][j] = i * 10 + j;
+            }
+        }
+        System.out.println(grid[2][3]);
+        System.out.println(grid[1].length);
+
+        // three dimensions
+        long[][][] cube = new long[2][3][4];
+        long sum = 0;
+        for (int i = 0; i < cube.length; i++) {
+            for (int j = 0; j < cube[i].length; j++) {
+                for (int k = 0; k < cube[i][j].length; k++) {
+                    cube[i][j][k] = i + j + k;
+                    sum = sum + cube[i][j][k];
+                }
+            }
+        }
+        System.out.println(sum);
+
+        // a row is used on its own, so the rows are separate arrays
+        int[][] rows = new int[2][5];
+        int[] row = rows[1];
+        row[4] = 42;
+        System.out.println(rows[1][4]);
+
+        // a new block replaces the old one
+        char[][] letters = new char[2][2];
+        letters[1][1] = 'x';
+        letters = new char[4][3];
+        letters[3][2] = 'y';
+        System.out.println(letters[3][2]);
+        System.out.println(letters.length);
+
+        // many blocks allocated and released
+        int total = 0;
+        for (int n = 0; n < 1000; n++) {
+            int[][] temp = new int[4][4];
+            temp[3][3] = n;
+            total = total + temp[3][3];
+        }
+        System.out.println(total);
+    }
+}
@@ -0,0 +1,56 @@
+package inputs.test069;
+
+class Account {
+    int balance;
+
+    synchronized void deposit(int amount) {
+        balance = balance + amount;
+    }
+
+    // takes the monitor it already holds
+    synchronized void depositTwice(int amount) {
+        synchronized (this) {
+            balance = balance + amount;
+        }
+        synchronized (this) {
+            balance = balance + amount;
+        }
+    }
+
+    static synchronized int twice(int n) {
+        return n * 2;
+    }
+}
+
+public class Test069 {
+    public static void main(String[] args) {
+        Account account = new Account();
+
+        // a synchronized block around a field update
+        for (int i = 0; i < 1000; i++) {
+            synchronized (account) {
+                account.balance = account.balance + 1;
+            }
+        }
+        System.out.println(account.balance);
+
+        // synchronized methods, one that locks again while it holds the monitor
+        account.deposit(10);
+        account.depositTwice(5);
+        System.out.println(account.balance);
+
+        // nested blocks on the same and on another object
+        Object lock = new Object();
+        synchronized (account) {
+            synchronized (lock) {
+                synchronized (account) {
+                    account.balance = 0;
+                }
+            }
+        }
+        System.out.println(account.balance);
+
+        // a static synchronized method locks the class
+        System.out.println(Account.twice(21));
+    }
+}
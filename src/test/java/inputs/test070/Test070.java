@@ -0,0 +1,58 @@
+package inputs.test070;
+
+class Node {
+    Node next;
+    Object other;
+    int value;
+
+    Node(int value) {
+        this.value = value;
+    }
+}
+
+public class Test070 {
+    public static void main(String[] args) {
+        // a ring that stays reachable while the garbage around it is collected
+        Node keep = new Node(1);
+        keep.next = new Node(2);
+        keep.next.next = new Node(3);
+        keep.next.next.next = keep;
+
+        long sum = 0;
+        for (int i = 0; i < 100000; i++) {
+            // two objects pointing at each other
+            Node a = new Node(i);
+            Node b = new Node(i + 1);
+            a.next = b;
+            b.next = a;
+
+            // an object pointing at itself
+            Node self = new Node(i % 7);
+            self.next = self;
+
+            // a cycle through a field of type Object
+            Node c = new Node(i % 3);
+            Node d = new Node(1);
+            c.next = d;
+            d.other = c;
+
+            sum = sum + a.next.value + self.next.value + c.next.value;
+
+            // the live ring is rotated through the garbage
+            keep.value = keep.value + 1;
+            keep = keep.next;
+        }
+        System.out.println(sum);
+
+        int ring = 0;
+        Node n = keep;
+        for (int i = 0; i < 3; i++) {
+            ring = ring + n.value;
+            n = n.next;
+        }
+        System.out.println(ring);
+        if (n == keep) {
+            System.out.println("ring intact");
+        }
+    }
+}
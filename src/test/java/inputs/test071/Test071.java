@@ -0,0 +1,67 @@
+package inputs.test071;
+
+class A {
+    int v;
+
+    A(int v) {
+        this.v = v;
+    }
+}
+
+class Box {
+    A first;
+
+    // first is passed without naming this
+    int run() {
+        Reader r = new Reader(first, this);
+        return r.seen;
+    }
+}
+
+class Probe {
+    int seen;
+
+    // a is borrowed while the slot it came from is overwritten
+    Probe(A a, A[] r) {
+        r[0] = new A(3);
+        seen = a.v + r[0].v;
+    }
+
+    static int f(A a, A[] r) {
+        r[0] = new A(2);
+        return a.v + r[0].v;
+    }
+}
+
+class Reader {
+    int seen;
+
+    Reader(A a, Box b) {
+        b.first = new A(20);
+        seen = a.v + b.first.v;
+    }
+}
+
+public class Test071 {
+    public static void main(String[] args) {
+        // an array element, the bounds check of arr[i] is elided
+        A[] arr = new A[1];
+        int total = 0;
+        for (int i = 0; i < arr.length; i++) {
+            arr[i] = new A(6);
+            total = total + Probe.f(arr[i], arr);
+        }
+        System.out.println(total);
+
+        // an array element passed to a constructor
+        arr[0] = new A(5);
+        Probe p = new Probe(arr[0], arr);
+        System.out.println(p.seen);
+
+        // a field of this
+        Box b = new Box();
+        b.first = new A(10);
+        total = b.run();
+        System.out.println(total);
+    }
+}
@@ -0,0 +1,25 @@
+package inputs.test072;
+
+public class Test072 {
+    public static void main(String[] args) {
+        int[][] a = new int[2][8];
+        Object[] o = a;
+
+        // stores of ints and Strings can't replace a row, so a[k][i] needs no check
+        String[] names = new String[8];
+        int k = 0;
+        for (int i = 0; i < a[k].length; i++) {
+            a[k][i] = i;
+            names[i] = "n";
+        }
+        System.out.println(a[0][7]);
+
+        // the Object[] alias of a replaces the row under the loop, so a[k][i] keeps its check
+        k = 1;
+        for (int i = 0; i < a[k].length; i++) {
+            System.out.println(i);
+            o[k] = new int[i];
+            a[k][i] = 5; // throws java.lang.ArrayIndexOutOfBoundsException
+        }
+    }
+}